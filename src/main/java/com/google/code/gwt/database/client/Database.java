@@ -46,7 +46,7 @@ import com.google.gwt.core.client.JavaScriptObject;
  *             "id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, " +
  *             "name VARCHAR(30) NOT NULL, " +
  *             "email VARCHAR(100) NOT NULL, " +
- *             "country VARCHAR(2) NOT NULL);", null);
+ *             "country VARCHAR(2) NOT NULL);", (Object[]) null);
  *     }
  * });
  * </pre>
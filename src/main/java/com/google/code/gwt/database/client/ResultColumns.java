@@ -0,0 +1,278 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.impl.SQLResultSetRowListJso;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.typedarrays.shared.Float64Array;
+import com.google.gwt.typedarrays.shared.Int32Array;
+
+/**
+ * Represents the rows of a ResultSet column by column, as returned by
+ * {@link SQLResultSetRowList#toColumns()}.
+ * 
+ * <p>
+ * Each column is stored in an array of its own, which is filled in one single
+ * pass over the rows:
+ * </p>
+ * <ul>
+ * <li>a column holding only 32-bit integers is stored in an
+ * {@link Int32Array};</li>
+ * <li>a column holding other numbers (or <code>NULL</code>s, stored as
+ * <code>NaN</code>) is stored in a {@link Float64Array};</li>
+ * <li>any other column is stored as an array of Strings.</li>
+ * </ul>
+ * 
+ * <p>
+ * The column names are taken from the first row. If the ResultSet is empty,
+ * any requested column is returned as an empty array.
+ * </p>
+ * 
+ * @see SQLResultSetRowList#toColumns()
+ * @author bguijt
+ */
+public class ResultColumns extends JavaScriptObject {
+
+  private static final int INT32 = 0;
+  private static final int FLOAT64 = 1;
+  private static final int STRING = 2;
+
+  protected ResultColumns() {
+  }
+
+  /**
+   * @return the number of rows, which is the length of every column array
+   */
+  public final native int getRowCount() /*-{
+    return this.n;
+  }-*/;
+
+  /**
+   * @return a {@link List} of all column names, in the order of the first row
+   */
+  public final List<String> getColumnNames() {
+    JsArrayString jas = getColumnNames0();
+    List<String> columnNames = new ArrayList<String>(jas.length());
+    for (int i = 0; i < jas.length(); i++) {
+      columnNames.add(jas.get(i));
+    }
+    return columnNames;
+  }
+
+  /**
+   * @return <code>true</code> if the specified column is stored as an
+   *         {@link Int32Array}
+   */
+  public final boolean isInt32Column(String name) {
+    return getKind(name) == INT32;
+  }
+
+  /**
+   * @return <code>true</code> if the specified column is stored as an
+   *         {@link Int32Array} or a {@link Float64Array}
+   */
+  public final boolean isNumberColumn(String name) {
+    int kind = getKind(name);
+    return kind == INT32 || kind == FLOAT64;
+  }
+
+  /**
+   * Returns the specified integer column.
+   * 
+   * @exception DatabaseException if the column doesn't exist, or holds values
+   *              other than 32-bit integers
+   */
+  public final Int32Array getInt32Array(String name) {
+    if (getRowCount() == 0) {
+      return createInt32Array0();
+    }
+    if (getKind(name) != INT32) {
+      throw new DatabaseException("Column '" + name
+          + "' is no 32-bit integer column");
+    }
+    return getInt32Column0(name);
+  }
+
+  /**
+   * Returns the specified numeric column. An integer column is copied into a
+   * new array.
+   * 
+   * @exception DatabaseException if the column doesn't exist, or holds values
+   *              other than numbers
+   */
+  public final Float64Array getFloat64Array(String name) {
+    if (getRowCount() == 0) {
+      return createFloat64Array0(null);
+    }
+    switch (getKind(name)) {
+      case INT32:
+        return createFloat64Array0(getColumn0(name));
+      case FLOAT64:
+        return getFloat64Column0(name);
+      default:
+        throw new DatabaseException("Column '" + name
+            + "' is no numeric column");
+    }
+  }
+
+  /**
+   * Returns the specified column as Strings. A numeric column is converted
+   * into a new array, in which <code>NaN</code> values become
+   * <code>null</code>.
+   * 
+   * @exception DatabaseException if the column doesn't exist
+   */
+  public final JsArrayString getStrings(String name) {
+    if (getRowCount() == 0) {
+      return JavaScriptObject.createArray().cast();
+    }
+    switch (getKind(name)) {
+      case INT32:
+      case FLOAT64:
+        return toStrings0(getColumn0(name));
+      case STRING:
+        return getColumn0(name).cast();
+      default:
+        throw new DatabaseException("No such column: '" + name + "'");
+    }
+  }
+
+  private int getKind(String name) {
+    int kind = getKind0(name);
+    if (kind < 0 && getRowCount() > 0) {
+      throw new DatabaseException("No such column: '" + name + "'");
+    }
+    return kind;
+  }
+
+  /**
+   * Copies the specified rows into a new ResultColumns instance.
+   * 
+   * <p>
+   * Every column starts out as an Int32Array. When a value doesn't fit, the
+   * column is widened once to a Float64Array or a String array, copying the
+   * values collected so far.
+   * </p>
+   */
+  static native ResultColumns create(SQLResultSetRowListJso<?> rows) /*-{
+    var n = rows.length;
+    var I32 = typeof Int32Array == 'undefined' ? Array : Int32Array;
+    var F64 = typeof Float64Array == 'undefined' ? Array : Float64Array;
+    var names = [];
+    var kinds = {};
+    var cols = {};
+    if (n > 0) {
+      var first = rows.item(0);
+      for (var name in first) {
+        names.push(name);
+        kinds[name] = 0;
+        cols[name] = new I32(n);
+      }
+    }
+    var c = names.length;
+    for (var i = 0; i < n; i++) {
+      var row = rows.item(i);
+      for (var k = 0; k < c; k++) {
+        var name = names[k];
+        var v = row[name];
+        var kind = kinds[name];
+        var col = cols[name];
+        if (kind == 0 && !(typeof v == 'number' && (v | 0) === v)) {
+          // Widen the integer column:
+          if (v == null || typeof v == 'number') {
+            kind = 1;
+            col = new F64(n);
+            for (var j = 0; j < i; j++) {
+              col[j] = cols[name][j];
+            }
+          } else {
+            kind = 2;
+            col = new Array(n);
+            for (var j = 0; j < i; j++) {
+              col[j] = String(cols[name][j]);
+            }
+          }
+          kinds[name] = kind;
+          cols[name] = col;
+        } else if (kind == 1 && v != null && typeof v != 'number') {
+          // Widen the number column:
+          kind = 2;
+          col = new Array(n);
+          for (var j = 0; j < i; j++) {
+            var d = cols[name][j];
+            col[j] = d == d ? String(d) : null;
+          }
+          kinds[name] = kind;
+          cols[name] = col;
+        }
+        if (kind == 0) {
+          col[i] = v;
+        } else if (kind == 1) {
+          col[i] = v == null ? NaN : v;
+        } else {
+          col[i] = v == null ? null : String(v);
+        }
+      }
+    }
+    return {n: n, names: names, kinds: kinds, cols: cols};
+  }-*/;
+
+  private native JsArrayString getColumnNames0() /*-{
+    return this.names;
+  }-*/;
+
+  private native int getKind0(String name) /*-{
+    return this.kinds.hasOwnProperty(name) ? this.kinds[name] : -1;
+  }-*/;
+
+  private native JavaScriptObject getColumn0(String name) /*-{
+    return this.cols[name];
+  }-*/;
+
+  private native Int32Array getInt32Column0(String name) /*-{
+    return this.cols[name];
+  }-*/;
+
+  private native Float64Array getFloat64Column0(String name) /*-{
+    return this.cols[name];
+  }-*/;
+
+  private static native Int32Array createInt32Array0() /*-{
+    return typeof Int32Array == 'undefined' ? [] : new Int32Array(0);
+  }-*/;
+
+  private static native Float64Array createFloat64Array0(JavaScriptObject col) /*-{
+    if (typeof Float64Array == 'undefined') {
+      return col ? col.slice(0) : [];
+    }
+    return col ? new Float64Array(col) : new Float64Array(0);
+  }-*/;
+
+  private static native JsArrayString toStrings0(JavaScriptObject col) /*-{
+    var n = col.length;
+    var a = new Array(n);
+    for (var i = 0; i < n; i++) {
+      var d = col[i];
+      a[i] = d == d ? String(d) : null;
+    }
+    return a;
+  }-*/;
+}
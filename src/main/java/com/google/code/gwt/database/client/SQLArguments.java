@@ -0,0 +1,202 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Represents the arguments of a SQL statement as a native JavaScript array,
+ * as passed to {@link SQLTransaction#executeSql(String, SQLArguments)}.
+ * 
+ * <p>
+ * Numbers, booleans and <code>null</code> values are stored as native
+ * JavaScript values, so no String is created for them, and a numeric value is
+ * compared to an INTEGER or REAL column without any conversion. The
+ * <code>add</code> methods for primitive values don't box them, so the
+ * arguments of a statement can be collected without creating any Java object.
+ * A <code>long</code> outside the range JavaScript numbers represent exactly,
+ * and any other value, is stored as string using the toString() method.
+ * </p>
+ * 
+ * <p>
+ * Note that a number bound to a column with TEXT affinity, or to a column
+ * without a declared type, is not stored or compared as the text
+ * {@link SQLTransaction#executeSql(String, Object[])} binds - see
+ * {@link SQLTransaction#executeSql(String, SQLArguments)}.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class SQLArguments extends JavaScriptObject {
+
+  /**
+   * The largest integer a JavaScript number represents exactly (2^53 - 1).
+   */
+  private static final long MAX_SAFE_INTEGER = 9007199254740991L;
+
+  protected SQLArguments() {
+  }
+
+  /**
+   * Creates an empty array of arguments.
+   */
+  public static SQLArguments create() {
+    return createArray().cast();
+  }
+
+  /**
+   * Creates an array holding the specified arguments, or returns
+   * <code>null</code> if <code>values</code> is <code>null</code>.
+   */
+  public static SQLArguments create(Object[] values) {
+    if (values == null) {
+      return null;
+    }
+    SQLArguments args = create();
+    for (int i = 0; i < values.length; i++) {
+      args.add(values[i]);
+    }
+    return args;
+  }
+
+  /**
+   * Adds the specified value, converted to the native JavaScript type
+   * representing it.
+   */
+  public final void add(Object value) {
+    if (value == null) {
+      pushNull();
+    } else if (value instanceof Boolean) {
+      add(((Boolean) value).booleanValue());
+    } else if (value instanceof Long) {
+      add(((Long) value).longValue());
+    } else if (value instanceof Float) {
+      add(((Float) value).floatValue());
+    } else if (value instanceof Integer || value instanceof Double
+        || value instanceof Short || value instanceof Byte) {
+      add(((Number) value).doubleValue());
+    } else {
+      add(value.toString());
+    }
+  }
+
+  /**
+   * Adds the specified value as a number, or as string if a JavaScript number
+   * cannot represent it exactly.
+   */
+  public final void add(long value) {
+    if (value >= -MAX_SAFE_INTEGER && value <= MAX_SAFE_INTEGER) {
+      add((double) value);
+    } else {
+      add(String.valueOf(value));
+    }
+  }
+
+  /**
+   * Adds the specified value as the number with the shortest decimal
+   * representation which rounds to the same float, e.g. <code>0.1</code> for
+   * <code>0.1f</code>. Widening would bind <code>0.10000000149011612</code>,
+   * which doesn't equal the <code>0.1</code> stored by other statements.
+   */
+  public final native void add(float value) /*-{
+    var single = new Float32Array(1);
+    single[0] = value;
+    var exact = single[0];
+    var number = exact;
+    for (var digits = 1; digits < 9; digits++) {
+      var candidate = Number(exact.toPrecision(digits));
+      single[0] = candidate;
+      if (single[0] === exact) {
+        number = candidate;
+        break;
+      }
+    }
+    this.push(number);
+  }-*/;
+
+  /**
+   * Adds the specified character as a string of one character.
+   */
+  public final void add(char value) {
+    add(String.valueOf(value));
+  }
+
+  /**
+   * Adds the specified value as a number.
+   */
+  public final native void add(int value) /*-{
+    this.push(value);
+  }-*/;
+
+  /**
+   * Adds the specified value as a number.
+   */
+  public final native void add(double value) /*-{
+    this.push(value);
+  }-*/;
+
+  /**
+   * Adds the specified value as a boolean.
+   */
+  public final native void add(boolean value) /*-{
+    this.push(value);
+  }-*/;
+
+  /**
+   * Adds the specified value as a string, or <code>null</code>.
+   */
+  public final native void add(String value) /*-{
+    this.push(value);
+  }-*/;
+
+  /**
+   * Returns the number of arguments.
+   */
+  public final native int length() /*-{
+    return this.length;
+  }-*/;
+
+  /**
+   * Returns the arguments as Java objects, e.g. to report them with a
+   * failure. Numbers are returned as {@link Double}s.
+   */
+  public final Object[] toArray() {
+    Object[] values = new Object[length()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = get(i);
+    }
+    return values;
+  }
+
+  private native void pushNull() /*-{
+    this.push(null);
+  }-*/;
+
+  private native Object get(int index) /*-{
+    var value = this[index];
+    if (value == null) {
+      return null;
+    }
+    if (typeof value == 'number') {
+      return @java.lang.Double::valueOf(D)(value);
+    }
+    if (typeof value == 'boolean') {
+      return @java.lang.Boolean::valueOf(Z)(value);
+    }
+    return value;
+  }-*/;
+}
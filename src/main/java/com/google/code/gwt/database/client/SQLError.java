@@ -26,6 +26,51 @@ import com.google.gwt.core.client.JavaScriptObject;
  */
 public class SQLError extends JavaScriptObject {
 
+  /**
+   * The transaction failed for reasons unrelated to the database itself.
+   */
+  public static final int UNKNOWN_ERR = 0;
+
+  /**
+   * The statement failed for database reasons not covered by any other error
+   * code.
+   */
+  public static final int DATABASE_ERR = 1;
+
+  /**
+   * The operation failed because the actual database version was not what it
+   * should be.
+   */
+  public static final int VERSION_ERR = 2;
+
+  /**
+   * The statement failed because the data returned from the database was too
+   * large.
+   */
+  public static final int TOO_LARGE_ERR = 3;
+
+  /**
+   * The statement failed because there was not enough remaining storage space.
+   */
+  public static final int QUOTA_ERR = 4;
+
+  /**
+   * The statement failed because of a syntax error, or the number of
+   * arguments did not match the number of ? placeholders.
+   */
+  public static final int SYNTAX_ERR = 5;
+
+  /**
+   * An INSERT, UPDATE, or REPLACE statement failed due to a constraint
+   * failure.
+   */
+  public static final int CONSTRAINT_ERR = 6;
+
+  /**
+   * A lock for the transaction could not be obtained in a reasonable time.
+   */
+  public static final int TIMEOUT_ERR = 7;
+
   protected SQLError() {
   }
 
@@ -20,6 +20,7 @@ import java.util.Iterator;
 
 import com.google.code.gwt.database.client.impl.SQLResultSetRowListJso;
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
 
 /**
  * Represents a tabular resultset much like JDBC's {@link java.sql.ResultSet}.
@@ -74,6 +75,31 @@ public final class SQLResultSetRowList<T extends JavaScriptObject> implements
         + getLength());
   }
 
+  /**
+   * Copies all rows into a plain JavaScript array in one single native call.
+   * 
+   * <p>
+   * Reading the copy does not involve the Database anymore, and it remains
+   * valid after the transaction has ended.
+   * </p>
+   * 
+   * @return a new array holding every row of this ResultSet
+   */
+  public JsArray<T> toArray() {
+    return jso.toArray();
+  }
+
+  /**
+   * Copies all rows column by column into a {@link ResultColumns} instance, in
+   * one single pass over the rows.
+   * 
+   * @return the columns of this ResultSet as typed arrays
+   * @see ResultColumns
+   */
+  public ResultColumns toColumns() {
+    return ResultColumns.create(jso);
+  }
+
   /**
    * Returns an Iterator associated with the ResultSet rows.
    * 
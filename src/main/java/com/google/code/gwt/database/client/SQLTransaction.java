@@ -115,6 +115,38 @@ public class SQLTransaction extends JavaScriptObject {
     this.executeSql(sqlStatement, arguments);
   }-*/;
 
+  /**
+   * Executes the provided <code>sqlStatement</code> with the specified
+   * <code>arguments</code>, which are bound as native JavaScript values.
+   * 
+   * <p>
+   * Unlike {@link #executeSql(String, Object[])}, which binds every argument
+   * as string, this method binds numbers, booleans and <code>null</code>
+   * values as such. A numeric argument is then compared to an INTEGER or REAL
+   * column without any conversion, and can be looked up in its index directly.
+   * </p>
+   * 
+   * <p>
+   * <b>Caveat:</b> the browser binds every JavaScript number as a floating
+   * point value. A column with TEXT affinity, or a column without a declared
+   * type, stores or compares such a number as e.g. <code>"5.0"</code> or
+   * <code>5.0</code>, rather than the text <code>"5"</code> bound by
+   * {@link #executeSql(String, Object[])}. So <code>WHERE code = ?</code> on
+   * such a column no longer matches rows stored with string arguments. Add
+   * the values of such columns as strings.
+   * </p>
+   * 
+   * @param sqlStatement the SQL statement to execute, containing
+   *          <code>"?"</code> placeholders for the <code>arguments</code>
+   * @param arguments the arguments to fit in the placeholders of the
+   *          <code>sqlStatement</code> (could be <code>null</code>)
+   * @see SQLArguments
+   */
+  public final native void executeSql(String sqlStatement,
+      SQLArguments arguments) /*-{
+    this.executeSql(sqlStatement, arguments);
+  }-*/;
+
   /**
    * Executes the provided <code>sqlStatement</code> with the specified
    * <code>arguments</code>.
@@ -157,6 +189,37 @@ public class SQLTransaction extends JavaScriptObject {
     );
   }-*/;
 
+  /**
+   * Executes the provided <code>sqlStatement</code> with the specified
+   * <code>arguments</code>, which are bound as native JavaScript values.
+   * 
+   * <p>
+   * Note the caveat on numbers bound to TEXT or untyped columns described at
+   * {@link #executeSql(String, SQLArguments)}.
+   * </p>
+   * 
+   * @param sqlStatement the SQL statement to execute, containing
+   *          <code>"?"</code> placeholders for the <code>arguments</code>
+   * @param arguments the arguments to fit in the placeholders of the
+   *          <code>sqlStatement</code> (could be <code>null</code>)
+   * @param callback the callback for handling errors and the resultset of the
+   *          SQL statement
+   * @see SQLArguments
+   */
+  public final native void executeSql(String sqlStatement,
+      SQLArguments arguments, StatementCallback<?> callback) /*-{
+    this.executeSql(
+      sqlStatement,
+      arguments,
+      function(transaction, resultSet) {
+        @com.google.code.gwt.database.client.SQLTransaction::handleStatement(Lcom/google/code/gwt/database/client/StatementCallback;Lcom/google/code/gwt/database/client/SQLTransaction;Lcom/google/code/gwt/database/client/SQLResultSet;) (callback, transaction, resultSet);
+      },
+      function(transaction, error) {
+        return @com.google.code.gwt.database.client.SQLTransaction::handleError(Lcom/google/code/gwt/database/client/StatementCallback;Lcom/google/code/gwt/database/client/SQLTransaction;Lcom/google/code/gwt/database/client/SQLError;) (callback, transaction, error);
+      }
+    );
+  }-*/;
+
   /**
    * Converts a java array to a JsArrayString.
    * 
@@ -18,6 +18,7 @@ package com.google.code.gwt.database.client.impl;
 
 import com.google.code.gwt.database.client.SQLResultSetRowList;
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
 
 /**
  * Represents the JSO version of a SQLResultSetRowList.
@@ -36,4 +37,13 @@ public class SQLResultSetRowListJso<T extends JavaScriptObject> extends JavaScri
   public final native T getItem(int index) /*-{
     return this.item(index);
   }-*/;
+
+  public final native JsArray<T> toArray() /*-{
+    var n = this.length;
+    var rows = new Array(n);
+    for (var i = 0; i < n; i++) {
+      rows[i] = this.item(i);
+    }
+    return rows;
+  }-*/;
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Allows a service method of a DataService annotated with {@link Shards} to
+ * be executed on all shards, although it has no {@link ShardKey} parameter.
+ * 
+ * <p>
+ * This annotation is required for {@link Update} methods without a ShardKey,
+ * as such a method writes the same data into every shard:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Update("DELETE FROM events WHERE what = {what}")
+ * <b>&#x40;Broadcast</b>
+ * void deleteEvents(String what, VoidCallback callback);
+ * </pre>
+ * 
+ * <p>
+ * {@link Select} methods without a ShardKey are always executed on all shards.
+ * Their results are concatenated in shard order, so an <code>ORDER BY</code>
+ * or <code>LIMIT</code> clause only applies to the rows of each shard. Such a
+ * Select is rejected unless it is annotated with this annotation as well.
+ * </p>
+ * 
+ * @see Shards
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.METHOD)
+public @interface Broadcast {
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+/**
+ * Represents the failure of a DataService call which is cancelled, or of
+ * which the deadline has expired.
+ * 
+ * @see CallHandle
+ * 
+ * @author bguijt
+ */
+public class CallCancelledException extends DataServiceException {
+
+  private static final long serialVersionUID = 4179634853712386511L;
+
+  private boolean timeout;
+
+  /**
+   * Creates a CallCancelledException.
+   * 
+   * @param timeout <code>true</code> if the call expired, rather than being
+   *          cancelled
+   */
+  public CallCancelledException(boolean timeout) {
+    super(timeout ? "Call deadline expired" : "Call cancelled");
+    this.timeout = timeout;
+  }
+
+  /**
+   * Returns <code>true</code> if the deadline of the call expired, or
+   * <code>false</code> if the call was cancelled.
+   */
+  public boolean isTimeout() {
+    return timeout;
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import com.google.gwt.core.client.Duration;
+
+/**
+ * Controls a pending DataService call.
+ * 
+ * <p>
+ * A service method returns a CallHandle when it is declared with
+ * <code>CallHandle</code> as return type, or it uses the CallHandle passed as
+ * one of its parameters. The same CallHandle may be passed to several calls,
+ * e.g. to cancel all calls made for a particular screen at once:
+ * </p>
+ * 
+ * <pre>
+ * public interface MyDataService extends DataService {
+ *   &#x40;Select("SELECT * FROM clickcount")
+ *   <b>CallHandle</b> getClicks(ListCallback&lt;ClickRow&gt; callback);
+ * 
+ *   &#x40;Select("SELECT * FROM clickcount WHERE clicked &gt;= {when.getTime()}")
+ *   void getClicksSince(Date when, <b>CallHandle handle</b>, ListCallback&lt;ClickRow&gt; callback);
+ * }
+ * </pre>
+ * 
+ * <p>
+ * A call which is cancelled, or of which the deadline has expired, before its
+ * transaction is started does not execute its SQL statements. Its
+ * {@link Callback#onFailure(DataServiceException)} callback method receives a
+ * {@link CallCancelledException} instead of the result.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class CallHandle {
+
+  private boolean cancelled = false;
+  private double deadline = Double.MAX_VALUE;
+
+  /**
+   * Cancels the call(s) using this handle.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Returns <code>true</code> if {@link #cancel()} has been invoked.
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Sets the deadline to the specified number of milliseconds from now.
+   */
+  public void setTimeout(int millis) {
+    setDeadline(Duration.currentTimeMillis() + millis);
+  }
+
+  /**
+   * Sets the deadline, in milliseconds since the epoch, after which the
+   * result is no longer of interest.
+   */
+  public void setDeadline(double deadline) {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Returns the deadline in milliseconds since the epoch.
+   */
+  public double getDeadline() {
+    return deadline;
+  }
+
+  /**
+   * Returns <code>true</code> if the deadline has passed.
+   */
+  public boolean isExpired() {
+    return deadline != Double.MAX_VALUE
+        && Duration.currentTimeMillis() > deadline;
+  }
+
+  /**
+   * Returns <code>true</code> if the result is no longer of interest, because
+   * the call is cancelled or its deadline has passed.
+   */
+  public boolean isAbandoned() {
+    return cancelled || isExpired();
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Enables <em>read coalescing</em> for the {@link Select} methods of a
+ * DataService.
+ * 
+ * <p>
+ * Normally each service method call runs in its own read-only transaction.
+ * With this annotation present, all calls made in the same event loop tick
+ * (e.g. while building a screen) are executed in a single, shared read-only
+ * transaction:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Connection(name="mydb", version="1.0", description="My DB", maxsize=10000)
+ * <b>&#x40;CoalesceReads</b>
+ * public interface MyDataService extends DataService {
+ *   // ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Each caller still receives its own result.
+ * </p>
+ * 
+ * @see GroupCommit
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.TYPE)
+public @interface CoalesceReads {
+
+  /**
+   * The maximum number of calls in one shared transaction.
+   */
+  int maxSize() default 50;
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import com.google.code.gwt.database.client.ResultColumns;
+
+/**
+ * Database service callback which expects the resultset column by column.
+ * 
+ * <p>
+ * Numeric columns are delivered as typed arrays, which is both compact and
+ * fast to read for large resultsets, e.g. when charting or aggregating the
+ * values of a few columns over many rows. See {@link ResultColumns} for the
+ * array type chosen for each column.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public interface ColumnsCallback extends Callback {
+
+  /**
+   * This callback method is invoked if the SQL is executed successfully.
+   * 
+   * @param columns the resultset provided column by column. Is never null, but
+   *          might have zero rows.
+   */
+  void onSuccess(ResultColumns columns);
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Generates the service methods of a DataService in compact form, to reduce
+ * the size of the compiled JavaScript.
+ * 
+ * <p>
+ * Normally each service method gets a transaction callback class of its own,
+ * and a statement callback class for {@link ScalarCallback} methods. In
+ * compact form, a service method only describes its SQL statement and the
+ * kind of its result in a static descriptor, and hands over the descriptor
+ * with the parameter values to an executor shared by all service methods:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Connection(name="mydb", version="1.0", description="My DB", maxsize=10000)
+ * <b>&#x40;Compact</b>
+ * public interface MyDataService extends DataService {
+ *   &#x40;Select("SELECT * FROM mytable WHERE name = {name}")
+ *   void getRows(String name, ListCallback&lt;GenericRow&gt; callback);
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Only service methods with a single statement and plain parameters are
+ * generated in compact form. Methods using a <code>foreach</code> attribute,
+ * collection or array parameters, optional clauses, {@link SingleFlight} or
+ * a {@link CallHandle} are generated as usual. The parameter values of a
+ * compact method are evaluated when the method is called, rather than when
+ * its transaction starts.
+ * </p>
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.TYPE)
+public @interface Compact {
+}
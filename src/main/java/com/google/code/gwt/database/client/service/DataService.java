@@ -83,6 +83,12 @@ import com.google.code.gwt.database.client.SQLTransaction;
  * <li>You can re-use a parameter as much as you want.</li>
  * <li>You can enter Java expressions within the curly braces, as long as they
  * evaluate to a single, primitive-like Object.</li>
+ * <li>Numbers, booleans and <code>null</code> are bound as native values where
+ * possible, so a number compared to an INTEGER or REAL column needs no
+ * conversion. The browser binds a number as a floating point value though,
+ * which a TEXT column stores and compares as e.g. <code>5.0</code>. Bind the
+ * values of TEXT columns as strings, e.g. <code>{String.valueOf(code)}</code>
+ * (see {@link SQLTransaction#executeSql(String, com.google.code.gwt.database.client.SQLArguments)}).</li>
  * </ul>
  * 
  * <p>
@@ -99,10 +105,13 @@ import com.google.code.gwt.database.client.SQLTransaction;
  * {@link Double}, {@link Float} and {@link Date}.</li>
  * <li>The {@link ListCallback 'list' callback}. This type relays the complete
  * resultSet as a {@link List} to the caller. The type parameter of the callback
- * is the same as the type parameter on the returned List.</li>
+ * is the same as the type parameter on the returned List. Plain Java classes
+ * annotated with {@link RowType} are filled by a generated row mapper.</li>
  * <li>The {@link RowIdListCallback 'ROWIDs' callback}. This type collects the
  * ROWID's of inserted records and relays them to the caller. This callback only
  * makes sense using the {@link Update} annotation.</li>
+ * <li>The {@link ColumnsCallback 'columns' callback}. This type relays the
+ * resultSet column by column, with numeric columns as typed arrays.</li>
  * </ol>
  * 
  * <p>
@@ -130,12 +139,24 @@ import com.google.code.gwt.database.client.SQLTransaction;
  * </p>
  * 
  * @see Connection
+ * @see GroupCommit
+ * @see CoalesceReads
+ * @see SingleFlight
+ * @see MaxPending
+ * @see Retry
+ * @see Priority
+ * @see CallHandle
+ * @see UnitOfWork
+ * @see Shards
+ * @see RunAsync
  * @see Select
  * @see Update
  * @see VoidCallback
  * @see ScalarCallback
  * @see ListCallback
+ * @see RowType
  * @see RowIdListCallback
+ * @see ColumnsCallback
  * @see <a
  *      href="http://code.google.com/p/gwt-mobile-webkit/wiki/DataServiceUserGuide">Wiki:
  *      User Guide</a>
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Enables <em>group commit</em> for the read/write transactions of a
+ * DataService.
+ * 
+ * <p>
+ * Normally each service method call runs in a transaction of its own. With
+ * this annotation present, the calls running in a read/write transaction -
+ * the {@link Update} methods, and the {@link Select} methods which need one,
+ * e.g. for a temporary table - made within a short window are collected and
+ * executed in a single, shared transaction:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Connection(name="mydb", version="1.0", description="My DB", maxsize=10000)
+ * <b>&#x40;GroupCommit(delay=20, maxSize=100)</b>
+ * public interface MyDataService extends DataService {
+ *   // ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Each caller still receives its own success or failure callback. If the
+ * shared transaction fails, the calls in it are executed once more, each in a
+ * transaction of its own, so that a single failing call cannot fail the others.
+ * </p>
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.TYPE)
+public @interface GroupCommit {
+
+  /**
+   * The number of milliseconds to wait for more calls before the shared
+   * transaction is started. The default, <code>0</code>, only collects the
+   * calls made in the same event loop tick.
+   */
+  int delay() default 0;
+
+  /**
+   * The maximum number of calls in one shared transaction. The transaction is
+   * started as soon as this many calls are collected.
+   */
+  int maxSize() default 50;
+}
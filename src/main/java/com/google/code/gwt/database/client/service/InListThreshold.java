@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the number of items above which a collection or array parameter of an
+ * <code>IN (...)</code> list is loaded into a temporary table, for all
+ * service methods of a DataService.
+ * 
+ * <p>
+ * Normally each item of such a parameter is bound to a placeholder of its
+ * own. SQLite binds at most 999 parameters to a single statement, and a
+ * statement with thousands of placeholders parses slowly. Beyond the
+ * threshold, the items are inserted into a temporary table in the same
+ * transaction instead, and the <code>IN (...)</code> list selects from that
+ * table:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Connection(name="mydb", version="1.0", description="My DB", maxsize=10000)
+ * <b>&#x40;InListThreshold(200)</b>
+ * public interface MyDataService extends DataService {
+ *   &#x40;Select("SELECT * FROM mytable WHERE id IN ({ids})")
+ *   void getRows(List&lt;Integer&gt; ids, ListCallback&lt;GenericRow&gt; callback);
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The temporary table is dropped right after the statement. A {@link Select}
+ * method loading a temporary table runs in a read/write transaction, because
+ * read-only transactions cannot create tables. Without this annotation, the
+ * threshold is 500 items.
+ * </p>
+ * 
+ * <p>
+ * The threshold must be between 0 and 999. Lists below the threshold are
+ * still loaded into a temporary table, the largest first, while the statement
+ * as a whole would exceed 999 parameters.
+ * </p>
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.TYPE)
+public @interface InListThreshold {
+
+  /**
+   * The maximum number of items bound as separate parameters.
+   */
+  int value();
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+/**
+ * Represents the priority lanes in which DataService transactions are
+ * scheduled, in order of priority.
+ * 
+ * @see Priority
+ * @author bguijt
+ */
+public enum Lane {
+
+  /**
+   * For transactions the user is waiting for, e.g. reads triggered by a tap.
+   */
+  INTERACTIVE,
+
+  /**
+   * The default lane.
+   */
+  NORMAL,
+
+  /**
+   * For transactions nobody is waiting for, e.g. background synchronization.
+   * The next background transaction is only started after yielding to the
+   * event loop.
+   */
+  BACKGROUND
+}
@@ -27,14 +27,13 @@ import com.google.gwt.core.client.JavaScriptObject;
  * resultset.
  * 
  * @param <T> specified the type to represent a row in the ResultSet. It must be
- *          a subclass of {@link JavaScriptObject}. You could use
- *          {@link GenericRow} as a sensible default. See also
- *          {@link SQLResultSetRowList}.
+ *          a subclass of {@link JavaScriptObject}, or a plain Java class
+ *          annotated with {@link RowType}. You could use {@link GenericRow}
+ *          as a sensible default. See also {@link SQLResultSetRowList}.
  * 
  * @author bguijt
  */
-public interface ListCallback<T extends JavaScriptObject> extends
-    Callback {
+public interface ListCallback<T> extends Callback {
 
   /**
    * This callback method is invoked if the SQL is executed successfully.
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the number of pending transactions of a DataService.
+ * 
+ * <p>
+ * Normally each service method call starts a transaction right away, no matter
+ * how many transactions are still waiting for the Database. With this
+ * annotation present, at most <code>value</code> transactions are started at
+ * the same time; the {@link OverflowPolicy} decides what happens to the calls
+ * beyond that:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Connection(name="mydb", version="1.0", description="My DB", maxsize=10000)
+ * <b>&#x40;MaxPending(value=20, overflow=OverflowPolicy.REJECT)</b>
+ * public interface MyDataService extends DataService {
+ *   // ...
+ * }
+ * </pre>
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.TYPE)
+public @interface MaxPending {
+
+  /**
+   * The maximum number of transactions started, but not yet completed.
+   */
+  int value();
+
+  /**
+   * What to do with the calls beyond the maximum.
+   */
+  OverflowPolicy overflow() default OverflowPolicy.QUEUE;
+}
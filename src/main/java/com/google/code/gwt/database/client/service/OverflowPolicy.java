@@ -0,0 +1,47 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+/**
+ * Determines what happens to a DataService call when the maximum number of
+ * pending calls is reached.
+ * 
+ * @see MaxPending
+ * @author bguijt
+ */
+public enum OverflowPolicy {
+
+  /**
+   * The call waits in the DataService until one of the pending calls has
+   * completed.
+   */
+  QUEUE,
+
+  /**
+   * The call fails immediately through its
+   * {@link Callback#onFailure(DataServiceException)} callback method.
+   */
+  REJECT,
+
+  /**
+   * The oldest waiting call in the {@link Lane#BACKGROUND background} lane
+   * fails to make room for the call, which then waits like with
+   * {@link #QUEUE}. If no background call is waiting, a background call fails
+   * immediately like with {@link #REJECT}, while other calls still wait.
+   */
+  DROP_OLDEST_BACKGROUND
+}
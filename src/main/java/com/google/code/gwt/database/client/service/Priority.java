@@ -0,0 +1,71 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Specifies the {@link Lane} in which the transactions of a service method are
+ * scheduled.
+ * 
+ * <p>
+ * All DataServices using the same database share a single transaction queue.
+ * Transactions in a higher priority lane are started before the ones in a
+ * lower priority lane, e.g.:
+ * </p>
+ * 
+ * <pre>
+ * <b>&#x40;Priority(Lane.INTERACTIVE)</b>
+ * &#x40;Select("SELECT * FROM contacts WHERE id = {id}")
+ * void getContact(int id, ListCallback&lt;GenericRow&gt; callback);
+ * 
+ * <b>&#x40;Priority(Lane.BACKGROUND)</b>
+ * &#x40;Update(sql="INSERT INTO contacts (name) VALUES ({_})", foreach="names")
+ * void insertContacts(List&lt;String&gt; names, VoidCallback callback);
+ * </pre>
+ * 
+ * <p>
+ * If this annotation is applied to a DataService interface, it applies to all
+ * service methods in it. Service methods without a priority use
+ * {@link Lane#NORMAL}.
+ * </p>
+ * 
+ * <p>
+ * The lanes only determine the order of the transactions waiting to be
+ * started. As the transactions are started right away by default, this takes
+ * effect once the number of active transactions is limited, e.g. by calling
+ * <code>setMaxActive(1)</code> on the
+ * {@link com.google.code.gwt.database.client.service.impl.BaseDataService#getTransactionScheduler()
+ * scheduler} of the DataService.
+ * </p>
+ * 
+ * @see com.google.code.gwt.database.client.service.impl.TransactionScheduler#setMaxActive(int)
+ * @see com.google.code.gwt.database.client.service.impl.BaseDataService#runInLane(Lane,
+ *      com.google.gwt.core.client.Scheduler.ScheduledCommand)
+ * @author bguijt
+ */
+@Documented
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Priority {
+
+  /**
+   * The lane to schedule the transactions in.
+   */
+  Lane value();
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service;
+
+/**
+ * Receives the progress of a service method which executes its
+ * {@link Update#foreach() foreach} statements in chunks.
+ * 
+ * <p>
+ * Let the callback of such a service method implement this interface as well
+ * to be notified each time a chunk is committed:
+ * </p>
+ * 
+ * <pre>
+ * abstract class ImportCallback implements RowIdListCallback, ProgressListener {
+ * }
+ * </pre>
+ * 
+ * @see Update#chunkSize()
+ * 
+ * @author bguijt
+ */
+public interface ProgressListener {
+
+  /**
+   * This callback method is invoked after each committed chunk, before the
+   * next chunk is started. The last chunk is reported right before the
+   * success callback method is invoked.
+   * 
+   * @param completed the number of items committed so far
+   * @param total the total number of items
+   */
+  void onProgress(int completed, int total);
+}
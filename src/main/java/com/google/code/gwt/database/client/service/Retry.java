@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+import com.google.code.gwt.database.client.SQLError;
+
+/**
+ * Retries the transactions of a DataService which fail with a transient
+ * {@link SQLError}, such as lock contention between browser tabs.
+ * 
+ * <p>
+ * A failed transaction is executed once more after a delay which doubles with
+ * each attempt, up to <code>maxDelay</code>, with a random jitter so that
+ * competing tabs don't retry in lock step. The callback only receives the
+ * failure when the last attempt fails, or when the error is not transient:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Connection(name="mydb", version="1.0", description="My DB", maxsize=10000)
+ * <b>&#x40;Retry(maxAttempts=5)</b>
+ * public interface MyDataService extends DataService {
+ *   // ...
+ * }
+ * </pre>
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.TYPE)
+public @interface Retry {
+
+  /**
+   * The {@link SQLError} codes to retry a transaction for.
+   */
+  int[] codes() default {SQLError.DATABASE_ERR, SQLError.TIMEOUT_ERR};
+
+  /**
+   * The maximum number of attempts to execute a transaction, including the
+   * first one.
+   */
+  int maxAttempts() default 3;
+
+  /**
+   * The number of milliseconds to wait before the first retry.
+   */
+  int delay() default 50;
+
+  /**
+   * The maximum number of milliseconds to wait before a retry.
+   */
+  int maxDelay() default 2000;
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a plain Java class as row type of a {@link ListCallback}.
+ * 
+ * <p>
+ * For each row type the Generator emits a row mapper, which copies the
+ * columns of every row into a new instance of the class. Each column is read
+ * by a fixed property name and assigned directly to the field of the same
+ * name (or the name given by {@link Column}), so the callback receives typed
+ * objects without any lookups by name in application code:
+ * </p>
+ * 
+ * <pre>
+ * <b>&#x40;RowType</b>
+ * public class Click {
+ *   int id;
+ *   String name;
+ *   &#x40;Column("clicked") Date when;
+ * }
+ * 
+ * &#x40;Select("SELECT id, name, clicked FROM clickcount")
+ * void getClicks(ListCallback&lt;Click&gt; callback);
+ * </pre>
+ * 
+ * <p>
+ * The class must be a top level or static nested class with a constructor
+ * without parameters. All non-static, non-transient fields, including the
+ * inherited ones, are mapped and must not be final. Supported field types are
+ * the primitive types except <code>char</code>, their wrapper types,
+ * {@link String} and {@link java.util.Date} (stored as milliseconds). A column
+ * which is <code>NULL</code> or missing leaves a primitive field at its
+ * default value.
+ * </p>
+ * 
+ * @see Column
+ * @see ListCallback
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.TYPE)
+public @interface RowType {
+}
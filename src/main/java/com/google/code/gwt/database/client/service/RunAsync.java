@@ -0,0 +1,59 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Loads the generated code of a DataService only when it is first used, in a
+ * code fragment of its own.
+ * 
+ * <p>
+ * Normally the generated DataService proxy, including all its SQL statements
+ * and callback classes, is part of the initial download of the application,
+ * even when the DataService is only used by a rarely visited screen. With
+ * this annotation present, <code>GWT.create()</code> returns a lightweight
+ * proxy which loads the actual proxy at a <code>GWT.runAsync()</code> split
+ * point, named after the DataService interface, on the first call:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Connection(name="mydb", version="1.0", description="My DB", maxsize=10000)
+ * <b>&#x40;RunAsync</b>
+ * public interface AdminDataService extends DataService {
+ *   &#x40;Select("SELECT * FROM audit WHERE user = {user}")
+ *   void getAuditTrail(String user, ListCallback&lt;GenericRow&gt; callback);
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The calls made while the code is loading are executed in order once it has
+ * arrived. If the code cannot be loaded, these calls fail, and the next call
+ * tries to load it again. Service methods returning a {@link CallHandle} are
+ * not supported; use a CallHandle parameter instead.
+ * </p>
+ * 
+ * @see com.google.code.gwt.database.client.service.impl.AsyncDataService
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.TYPE)
+public @interface RunAsync {
+}
@@ -33,6 +33,27 @@ import java.lang.annotation.Target;
  * void getData(Date <b>upToWhen</b>, ListCallback<GenericRow> callback);
  * </pre>
  * 
+ * <h3>Optional clauses</h3>
+ * 
+ * <p>
+ * A part of the statement between <code>{?</code> and <code>}</code> is only
+ * applied if the service method parameters used in it are not
+ * <code>null</code>, e.g. for a search screen with optional filters:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Select("SELECT * FROM mytable WHERE 1 = 1<b>{? AND name = {name}}</b><b>{? AND when &gt;= {since.getTime()}}</b>")
+ * void find(String name, Date since, ListCallback<GenericRow> callback);
+ * </pre>
+ * 
+ * <p>
+ * Unlike a catch-all condition such as <code>(? IS NULL OR name = ?)</code>,
+ * each combination of applied clauses results in a plain statement SQLite can
+ * use its indices for. These statements are prepared by the compiler, so no
+ * SQL text is built at runtime. A statement can have at most 8 optional
+ * clauses, and no collection or array parameters.
+ * </p>
+ * 
  * <h3>SQL dialect</h3>
  * 
  * <p>
@@ -63,4 +84,21 @@ public @interface Select {
    * @return the SQL SELECT statement to execute
    */
   String sql() default "";
+
+  /**
+   * Whether the rows delivered to a {@link ListCallback} are copied out of the
+   * resultset at once, in one native call, instead of being read from the
+   * resultset one by one as the List is accessed.
+   * 
+   * <p>
+   * Copying pays off for callbacks iterating over most rows of a large
+   * resultset, and costs an extra array for callbacks reading only a few of
+   * them. It has no effect on a {@link RowType} row type, whose rows are
+   * always converted at once. Such methods are not generated in
+   * {@link Compact} form.
+   * </p>
+   * 
+   * @return <code>true</code> to copy all rows at once
+   */
+  boolean copyRows() default false;
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the service method parameter which determines the shard a call is
+ * executed on.
+ * 
+ * <p>
+ * Calls with equal keys - according to {@link Object#equals(Object)} - are
+ * always executed on the same shard. The parameter must be a {@link String} or
+ * a numeric type, as the shard is derived from a hash of the key which is the
+ * same in every GWT version.
+ * </p>
+ * 
+ * @see Shards
+ * @see Broadcast
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.PARAMETER)
+public @interface ShardKey {
+}
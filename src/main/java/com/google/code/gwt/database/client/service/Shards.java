@@ -0,0 +1,73 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Spreads the data of a DataService over several Web Databases, called
+ * <em>shards</em>.
+ * 
+ * <p>
+ * A Web Database executes one read/write transaction at a time. With this
+ * annotation present, the DataService uses <code>value</code> Databases
+ * instead, named after the {@link Connection} name followed by an underscore
+ * and the shard number (e.g. <code>events_0</code> to <code>events_3</code>),
+ * which commit their transactions independently of each other:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Connection(name="events", version="1.0", description="Events", maxsize=10000)
+ * <b>&#x40;Shards(4)</b>
+ * public interface EventDataService extends DataService {
+ *   &#x40;Update("INSERT INTO events (user, what) VALUES ({user}, {what})")
+ *   void addEvent(<b>&#x40;ShardKey</b> String user, String what, VoidCallback callback);
+ * 
+ *   &#x40;Select("SELECT * FROM events WHERE user = {user}")
+ *   void getEvents(<b>&#x40;ShardKey</b> String user, ListCallback&lt;Event&gt; callback);
+ * 
+ *   &#x40;Select("SELECT * FROM events")
+ *   void getAllEvents(ListCallback&lt;Event&gt; callback);
+ * }
+ * </pre>
+ * 
+ * <p>
+ * A call with a {@link ShardKey} parameter is executed on the shard that key
+ * belongs to. A call without one is executed on all shards: the results of a
+ * {@link ListCallback} or {@link RowIdListCallback} are merged in shard order,
+ * and the callback receives the first failure, if any. {@link ScalarCallback}
+ * methods require a ShardKey. {@link Update} methods without a ShardKey, and
+ * Selects without one using <code>ORDER BY</code> or <code>LIMIT</code>, must
+ * be annotated with {@link Broadcast}.
+ * </p>
+ * 
+ * @see Broadcast
+ * @see com.google.code.gwt.database.client.service.impl.ShardedDataService
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target(ElementType.TYPE)
+public @interface Shards {
+
+  /**
+   * The number of Databases to spread the data over.
+   */
+  int value();
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Prevents identical {@link Select} queries from being executed concurrently.
+ * 
+ * <p>
+ * When a service method annotated with <code>&#x40;SingleFlight</code> (or
+ * declared in a DataService interface annotated with it) is called while an
+ * identical call - the same method, SQL statement and parameter values - is
+ * still in progress, the new call doesn't execute the query again. Instead,
+ * it receives the result of the call in progress:
+ * </p>
+ * 
+ * <pre>
+ * <b>&#x40;SingleFlight</b>
+ * &#x40;Select("SELECT * FROM contacts WHERE country = {country}")
+ * void getContacts(String country, ListCallback&lt;GenericRow&gt; callback);
+ * </pre>
+ * 
+ * <p>
+ * Calls sharing a result receive the very same (immutable) result List.
+ * This annotation is ignored on {@link Update} methods.
+ * </p>
+ * 
+ * @author bguijt
+ */
+@Documented
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface SingleFlight {
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service;
+
+import com.google.code.gwt.database.client.SQLTransaction;
+
+/**
+ * Represents several DataService calls which must be executed in one single,
+ * atomic transaction.
+ * 
+ * <pre>
+ * service.runInTransaction(new UnitOfWork() {
+ *   public void execute(SQLTransaction tx) {
+ *     service.insertOrder(order, orderCallback);
+ *     service.updateStock(order.getItems(), stockCallback);
+ *   }
+ * }, unitCallback);
+ * </pre>
+ * 
+ * @see com.google.code.gwt.database.client.service.impl.BaseDataService#runInTransaction(UnitOfWork,
+ *      VoidCallback)
+ * 
+ * @author bguijt
+ */
+public interface UnitOfWork {
+
+  /**
+   * Makes the DataService calls of this unit of work. Each call made directly
+   * from this method executes its SQL statements in the specified transaction,
+   * instead of starting a transaction of its own. The specified transaction
+   * may be used to execute additional SQL statements as well.
+   */
+  void execute(SQLTransaction transaction);
+}
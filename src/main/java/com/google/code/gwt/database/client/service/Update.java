@@ -78,6 +78,53 @@ import com.google.code.gwt.database.client.SQLResultSet;
  * transaction.
  * </p>
  * 
+ * <h3>Bulk inserts</h3>
+ * 
+ * <p>
+ * Executing a statement for each item takes a round trip to the database per
+ * item. With <code>bulk=true</code>, a single-row
+ * <code>INSERT ... VALUES (...)</code> statement is rewritten to insert many
+ * items at once using multi-row <code>VALUES (...), (...), ...</code>
+ * statements, each of which stays below the SQLite limit of 999 bound
+ * parameters:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Update(sql="INSERT INTO mytable (when, name) VALUES ({_.getTime()}, {name})",
+ *     foreach="dates", <b>bulk=true</b>)
+ * void insertData(Iterable&lt;Date&gt; dates, VoidCallback callback);
+ * </pre>
+ * 
+ * <p>
+ * The ROWID of each item cannot be derived reliably from a multi-row
+ * statement, e.g. with an <code>OR IGNORE</code> conflict clause or explicit
+ * ROWID values. Service methods with a {@link RowIdListCallback} therefore
+ * ignore <code>bulk=true</code> and insert one item per statement.
+ * </p>
+ * 
+ * <h3>Chunked execution</h3>
+ * 
+ * <p>
+ * A very large collection keeps the database busy for a long time in one
+ * transaction. With a <code>chunkSize</code>, the items are executed in
+ * several transactions of at most that many items each, yielding to the
+ * event loop in between:
+ * </p>
+ * 
+ * <pre>
+ * &#x40;Update(sql="INSERT INTO mytable (when, name) VALUES ({_.getTime()}, {name})",
+ *     foreach="dates", <b>chunkSize=1000</b>)
+ * void insertData(List&lt;Date&gt; dates, RowIdListCallback callback);
+ * </pre>
+ * 
+ * <p>
+ * The callback is still invoked only once, with the ROWID's of all chunks or
+ * with the first failure. A callback which also implements
+ * {@link ProgressListener} is notified after each chunk. Note that the chunks
+ * are committed independently: when a chunk fails, the chunks before it stay
+ * committed and the chunks after it are not executed.
+ * </p>
+ * 
  * <h3>SQL dialect</h3>
  * 
  * <p>
@@ -110,4 +157,18 @@ public @interface Update {
    * iterate. This attribute is optional.
    */
   String foreach() default "";
+
+  /**
+   * Inserts the items of the {@link #foreach()} collection using multi-row
+   * INSERT statements, instead of one statement per item. This attribute is
+   * optional.
+   */
+  boolean bulk() default false;
+
+  /**
+   * Executes the items of the {@link #foreach()} collection in several
+   * transactions of at most this many items each. This attribute is optional;
+   * the default <code>0</code> executes all items in one transaction.
+   */
+  int chunkSize() default 0;
 }
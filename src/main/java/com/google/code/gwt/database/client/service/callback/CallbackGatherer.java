@@ -0,0 +1,84 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.callback;
+
+import com.google.code.gwt.database.client.service.Callback;
+import com.google.code.gwt.database.client.service.DataServiceException;
+
+/**
+ * Gathers the outcome of a DataService call executed on several shards, and
+ * reports it to the callback of the call once all shards have completed.
+ * 
+ * @param <C> the {@link Callback} type of the call
+ * 
+ * @see com.google.code.gwt.database.client.service.Shards
+ * 
+ * @author bguijt
+ */
+public abstract class CallbackGatherer<C extends Callback> {
+
+  private C callback;
+  private int pending;
+  private DataServiceException failure;
+
+  /**
+   * Creates a gatherer for the specified callback and number of shards.
+   */
+  public CallbackGatherer(C callback, int shardCount) {
+    this.callback = callback;
+    this.pending = shardCount;
+  }
+
+  /**
+   * Returns the callback for the call on the specified shard.
+   */
+  public abstract C getCallback(int shard);
+
+  /**
+   * Invokes the success callback method of the specified DataService callback
+   * with the gathered results.
+   */
+  protected abstract void onSuccess(C callback);
+
+  /**
+   * Registers the success of the call on a shard.
+   */
+  protected void shardSucceeded() {
+    shardCompleted();
+  }
+
+  /**
+   * Registers the failure of the call on a shard. Only the first failure is
+   * reported.
+   */
+  protected void shardFailed(DataServiceException e) {
+    if (failure == null) {
+      failure = e;
+    }
+    shardCompleted();
+  }
+
+  private void shardCompleted() {
+    if (--pending == 0) {
+      if (failure != null) {
+        callback.onFailure(failure);
+      } else {
+        onSuccess(callback);
+      }
+    }
+  }
+}
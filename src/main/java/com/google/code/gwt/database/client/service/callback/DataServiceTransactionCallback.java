@@ -16,13 +16,26 @@
 
 package com.google.code.gwt.database.client.service.callback;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.SQLArguments;
 import com.google.code.gwt.database.client.SQLError;
 import com.google.code.gwt.database.client.SQLTransaction;
 import com.google.code.gwt.database.client.StatementCallback;
 import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.code.gwt.database.client.service.CallCancelledException;
+import com.google.code.gwt.database.client.service.CallHandle;
 import com.google.code.gwt.database.client.service.Callback;
 import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.Lane;
+import com.google.code.gwt.database.client.service.ProgressListener;
+import com.google.code.gwt.database.client.service.impl.DataServiceUtils;
+import com.google.code.gwt.database.client.service.impl.RetryPolicy;
 import com.google.code.gwt.database.rebind.DataServiceGenerator;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 
 /**
  * Used in the {@link DataServiceGenerator} to reduce generated boilerplate
@@ -30,7 +43,7 @@ import com.google.code.gwt.database.rebind.DataServiceGenerator;
  * 
  * <p>
  * The Generator implements the onTransactionStart() method body. Subclasses
- * implement the onTransactionSuccess() method body.
+ * implement the onTransactionSuccess(callback) method body.
  * </p>
  * 
  * @param <C> the {@link Callback} type use for this transaction
@@ -40,13 +53,27 @@ import com.google.code.gwt.database.rebind.DataServiceGenerator;
 public abstract class DataServiceTransactionCallback<C extends Callback>
     implements TransactionCallback {
 
+  /**
+   * The maximum number of rows inserted into a temporary table by a single
+   * statement.
+   */
+  private static final int MAX_TEMP_TABLE_ROWS = 500;
+
   private C callback;
+  private List<DataServiceTransactionCallback<C>> sharedTransactions;
+  private List<ScheduledCommand> completionCommands;
+  private RetryPolicy retryPolicy;
+  private ScheduledCommand retryCommand;
+  private int attempts = 1;
+  private ScheduledCommand chunkCommand;
+  private int chunkStart = 0;
 
   // Context values for auditing:
   private int errCode;
   private String errMessage;
   private String sql;
   private Object[] params;
+  private SQLArguments args;
 
   /**
    * Creates a new TransactionCallback with the specified DataService callback.
@@ -63,9 +90,24 @@ public abstract class DataServiceTransactionCallback<C extends Callback>
       StatementCallback<?> callback) {
     this.sql = sql;
     this.params = params;
+    this.args = null;
     tx.executeSql(sql, params, callback);
   }
 
+  /**
+   * Wraps a call to
+   * {@link SQLTransaction#executeSql(String, SQLArguments, StatementCallback)}
+   * and stores the SQL statement and arguments for failure events. The
+   * arguments are only converted to Java objects when the statement fails.
+   */
+  protected void execNative(SQLTransaction tx, String sql,
+      SQLArguments args, StatementCallback<?> callback) {
+    this.sql = sql;
+    this.params = null;
+    this.args = args;
+    tx.executeSql(sql, args, callback);
+  }
+
   /**
    * Wraps a call to
    * {@link SQLTransaction#executeSql(String, Object[], StatementCallback)} and
@@ -74,6 +116,7 @@ public abstract class DataServiceTransactionCallback<C extends Callback>
   protected void exec(SQLTransaction tx, String sql, Object[] params) {
     this.sql = sql;
     this.params = params;
+    this.args = null;
     tx.executeSql(sql, params);
   }
 
@@ -90,21 +133,338 @@ public abstract class DataServiceTransactionCallback<C extends Callback>
     this.errMessage = message;
   }
 
+  /**
+   * Invokes the DataService' success callback method of each DataService
+   * callback sharing this transaction.
+   * 
+   * @see #share(DataServiceTransactionCallback)
+   */
+  public void onTransactionSuccess() {
+    if (getChunkSize() > 0 && nextChunk()) {
+      return;
+    }
+    complete();
+    onTransactionSuccess(this);
+    if (sharedTransactions != null) {
+      for (DataServiceTransactionCallback<C> shared : sharedTransactions) {
+        onTransactionSuccess(shared);
+      }
+    }
+  }
+
+  private void onTransactionSuccess(DataServiceTransactionCallback<C> txCallback) {
+    CallHandle handle = txCallback.getHandle();
+    if (handle != null && handle.isAbandoned()) {
+      txCallback.getCallback().onFailure(
+          new CallCancelledException(!handle.isCancelled()));
+    } else {
+      onTransactionSuccess(txCallback.getCallback());
+    }
+  }
+
+  /**
+   * Invokes the success callback method of the specified DataService callback
+   * with the result collected during the transaction.
+   */
+  protected abstract void onTransactionSuccess(C callback);
+
   /**
    * Invokes the DataService' {@link Callback#onFailure(DataServiceException)}
-   * callback method.
+   * callback method of each DataService callback sharing this transaction.
    */
   public void onTransactionFailure(SQLError error) {
+    int code = errMessage != null ? errCode : error.getCode();
+    if (retryPolicy != null && retryPolicy.isRetryable(code, attempts)
+        && !isAbandoned()) {
+      retry();
+      return;
+    }
+    DataServiceException e;
     if (errMessage != null) {
       // Use the SQLError details from the
       // StatementCallback.onFailure callback:
-      callback.onFailure(new DataServiceException(errMessage, errCode, sql,
-          params));
+      e = new DataServiceException(errMessage, errCode, sql,
+          args != null ? args.toArray() : params);
     } else {
       // Use the SQLError details from the
       // TransactionCallback.onFailure callback:
-      callback.onFailure(new DataServiceException(error));
+      e = new DataServiceException(error);
+    }
+    fail(e);
+  }
+
+  /**
+   * Completes this transaction with the specified failure, invoking the
+   * DataService' {@link Callback#onFailure(DataServiceException)} callback
+   * method of each DataService callback sharing this transaction.
+   */
+  public void fail(DataServiceException e) {
+    complete();
+    fail(this, e);
+    if (sharedTransactions != null) {
+      for (DataServiceTransactionCallback<C> shared : sharedTransactions) {
+        fail(shared, e);
+      }
+    }
+  }
+
+  private void fail(DataServiceTransactionCallback<C> txCallback,
+      DataServiceException e) {
+    CallHandle handle = txCallback.getHandle();
+    if (handle != null && handle.isAbandoned()) {
+      e = new CallCancelledException(!handle.isCancelled());
+    }
+    txCallback.getCallback().onFailure(e);
+  }
+
+  /**
+   * Lets the DataService callback of the specified transaction share the
+   * outcome of this transaction, instead of executing the specified
+   * transaction.
+   * 
+   * <p>
+   * The specified transaction must be of the same type as this one.
+   * </p>
+   */
+  @SuppressWarnings("unchecked")
+  public void share(DataServiceTransactionCallback<?> txCallback) {
+    if (sharedTransactions == null) {
+      sharedTransactions = new ArrayList<DataServiceTransactionCallback<C>>();
+    }
+    sharedTransactions.add((DataServiceTransactionCallback<C>) txCallback);
+  }
+
+  /**
+   * Adds a command to execute once this transaction is completed, either
+   * successfully or not, before any DataService callback is invoked.
+   */
+  public void addCompletionCommand(ScheduledCommand completionCommand) {
+    if (completionCommands == null) {
+      completionCommands = new ArrayList<ScheduledCommand>();
+    }
+    completionCommands.add(completionCommand);
+  }
+
+  private void complete() {
+    if (completionCommands != null) {
+      for (ScheduledCommand completionCommand : completionCommands) {
+        completionCommand.execute();
+      }
+    }
+  }
+
+  /**
+   * Makes this transaction retry a failure according to the specified
+   * policy.
+   * 
+   * @param retryCommand the command to execute the transaction once more
+   */
+  public void setRetryPolicy(RetryPolicy retryPolicy,
+      ScheduledCommand retryCommand) {
+    this.retryPolicy = retryPolicy;
+    this.retryCommand = retryCommand;
+  }
+
+  /**
+   * Executes the retry command after the delay prescribed by the retry
+   * policy.
+   */
+  private void retry() {
+    int delay = retryPolicy.getDelay(attempts);
+    attempts++;
+    reset();
+    if (delay <= 0) {
+      Scheduler.get().scheduleDeferred(retryCommand);
+    } else {
+      Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+        public boolean execute() {
+          retryCommand.execute();
+          return false;
+        }
+      }, delay);
+    }
+  }
+
+  /**
+   * Makes this transaction execute its items in chunks of
+   * {@link #getChunkSize()} items, each in a transaction of its own.
+   * 
+   * @param chunkCommand the command to execute the transaction for the next
+   *          chunk
+   */
+  public void setChunkCommand(ScheduledCommand chunkCommand) {
+    this.chunkCommand = chunkCommand;
+  }
+
+  /**
+   * Called when a chunk is committed. Reports the progress, and schedules the
+   * next chunk, if any.
+   * 
+   * @return <code>true</code> if the next chunk is scheduled
+   */
+  private boolean nextChunk() {
+    chunkStart = getChunkEnd();
+    attempts = 1;
+    onChunkSuccess();
+    if (getCallback() instanceof ProgressListener) {
+      ((ProgressListener) getCallback()).onProgress(chunkStart, getItemCount());
+    }
+    if (chunkStart < getItemCount() && !isAbandoned()) {
+      // Yield to the event loop before starting the next chunk:
+      Scheduler.get().scheduleDeferred(chunkCommand);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Called when a chunk is committed, before the next chunk is started.
+   * Subclasses which collect results must override this method to keep the
+   * results of the committed chunk when a later chunk is {@link #reset()}.
+   */
+  protected void onChunkSuccess() {
+  }
+
+  /**
+   * Returns the maximum number of items to execute per transaction, or
+   * <code>0</code> to execute all items in one transaction. The Generator
+   * overrides this method for service methods with an
+   * {@link com.google.code.gwt.database.client.service.Update#chunkSize()}.
+   */
+  public int getChunkSize() {
+    return 0;
+  }
+
+  /**
+   * Returns the total number of items to execute. The Generator overrides
+   * this method for chunked service methods.
+   */
+  public int getItemCount() {
+    return 0;
+  }
+
+  /**
+   * Returns the index of the first item to execute in the current
+   * transaction.
+   */
+  protected int getChunkStart() {
+    return chunkCommand == null ? 0 : chunkStart;
+  }
+
+  /**
+   * Returns the index after the last item to execute in the current
+   * transaction. All items are executed at once if this transaction cannot be
+   * chunked, e.g. when it joins a {@link
+   * com.google.code.gwt.database.client.service.UnitOfWork}.
+   */
+  protected int getChunkEnd() {
+    if (chunkCommand == null) {
+      return getItemCount();
+    }
+    return Math.min(chunkStart + getChunkSize(), getItemCount());
+  }
+
+  /**
+   * Clears the state collected during a transaction which was rolled back, so
+   * this instance can be used to execute the transaction once more.
+   * 
+   * <p>
+   * Subclasses which collect results must override this method to clear them
+   * as well.
+   * </p>
+   */
+  public void reset() {
+    errCode = 0;
+    errMessage = null;
+    sql = null;
+    params = null;
+    args = null;
+  }
+
+  /**
+   * Returns the lane to schedule this transaction in. The Generator overrides
+   * this method for service methods with a
+   * {@link com.google.code.gwt.database.client.service.Priority}.
+   */
+  public Lane getLane() {
+    return Lane.NORMAL;
+  }
+
+  /**
+   * Returns <code>true</code> if this transaction must be executed in
+   * read/write mode, even though it is started as a read-only transaction.
+   * The Generator overrides this method for service methods which may load a
+   * temporary table.
+   */
+  public boolean isReadWrite() {
+    return false;
+  }
+
+  /**
+   * Creates a temporary table with a single column <code>v</code>, and inserts
+   * the specified values into it using multi-row INSERT statements.
+   * 
+   * @see #dropTempTable(SQLTransaction, String)
+   */
+  protected void createTempTable(SQLTransaction tx, String table,
+      Object[] values) {
+    exec(tx, "CREATE TEMP TABLE " + table + " (v)", null);
+    String insert = "INSERT INTO " + table + " (v) VALUES ";
+    for (int i = 0; i < values.length; i += MAX_TEMP_TABLE_ROWS) {
+      int rows = Math.min(MAX_TEMP_TABLE_ROWS, values.length - i);
+      Object[] params = new Object[rows];
+      for (int j = 0; j < rows; j++) {
+        params[j] = values[i + j];
+      }
+      exec(tx, DataServiceUtils.getBulkSql(insert, "(?)", "", rows), params);
+    }
+  }
+
+  /**
+   * Drops the specified temporary table.
+   * 
+   * @see #createTempTable(SQLTransaction, String, Object[])
+   */
+  protected void dropTempTable(SQLTransaction tx, String table) {
+    exec(tx, "DROP TABLE " + table, null);
+  }
+
+  /**
+   * Returns the name of the service method which started this transaction.
+   * The Generator overrides this method.
+   */
+  public String getMethodName() {
+    return null;
+  }
+
+  /**
+   * Returns the handle to cancel this transaction with, if any. The Generator
+   * overrides this method for service methods using a {@link CallHandle}.
+   */
+  public CallHandle getHandle() {
+    return null;
+  }
+
+  /**
+   * Returns <code>true</code> if nobody is interested in the outcome of this
+   * transaction anymore, because the calls of this transaction and of all
+   * transactions sharing it are cancelled or expired. The Generator skips the
+   * SQL statements of such a transaction.
+   */
+  protected boolean isAbandoned() {
+    CallHandle handle = getHandle();
+    if (handle == null || !handle.isAbandoned()) {
+      return false;
+    }
+    if (sharedTransactions != null) {
+      for (DataServiceTransactionCallback<C> shared : sharedTransactions) {
+        handle = shared.getHandle();
+        if (handle == null || !handle.isAbandoned()) {
+          return false;
+        }
+      }
     }
+    return true;
   }
 
   /**
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.callback.columns;
+
+import com.google.code.gwt.database.client.ResultColumns;
+import com.google.code.gwt.database.client.service.ColumnsCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+
+/**
+ * Used in the {@link DataServiceGenerator} to reduce generated boilerplate
+ * code.
+ * 
+ * <p>
+ * The Generator implements the onTransactionStart() method body.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public abstract class TransactionCallbackColumnsCallback extends
+    DataServiceTransactionCallback<ColumnsCallback> {
+
+  private ResultColumns store;
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' Columns
+   * callback.
+   */
+  public TransactionCallbackColumnsCallback(ColumnsCallback callback) {
+    super(callback);
+  }
+
+  /**
+   * Store the columns for later retrieval when the transaction has ended.
+   */
+  protected void storeColumns(ResultColumns columns) {
+    store = columns;
+  }
+
+  /**
+   * Clears the stored columns.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+    store = null;
+  }
+
+  /**
+   * Invokes the DataService' {@link ColumnsCallback#onSuccess(ResultColumns)}
+   * callback method with the value stored at
+   * {@link #storeColumns(ResultColumns)}.
+   */
+  @Override
+  protected void onTransactionSuccess(ColumnsCallback callback) {
+    callback.onSuccess(store);
+  }
+}
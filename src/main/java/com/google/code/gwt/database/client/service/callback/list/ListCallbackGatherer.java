@@ -0,0 +1,76 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.callback.list;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.callback.CallbackGatherer;
+
+/**
+ * Merges the results of a {@link ListCallback} call executed on several
+ * shards, in shard order.
+ * 
+ * @param <T> the type of the rows
+ * 
+ * @author bguijt
+ */
+public class ListCallbackGatherer<T> extends
+    CallbackGatherer<ListCallback<T>> {
+
+  private List<List<T>> results;
+
+  /**
+   * Creates a gatherer for the specified callback and number of shards.
+   */
+  public ListCallbackGatherer(ListCallback<T> callback, int shardCount) {
+    super(callback, shardCount);
+    results = new ArrayList<List<T>>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      results.add(null);
+    }
+  }
+
+  @Override
+  public ListCallback<T> getCallback(final int shard) {
+    return new ListCallback<T>() {
+      public void onSuccess(List<T> result) {
+        results.set(shard, result);
+        shardSucceeded();
+      }
+
+      public void onFailure(DataServiceException error) {
+        shardFailed(error);
+      }
+    };
+  }
+
+  @Override
+  protected void onSuccess(ListCallback<T> callback) {
+    int size = 0;
+    for (List<T> result : results) {
+      size += result.size();
+    }
+    List<T> merged = new ArrayList<T>(size);
+    for (List<T> result : results) {
+      merged.addAll(result);
+    }
+    callback.onSuccess(merged);
+  }
+}
@@ -22,6 +22,7 @@ import com.google.code.gwt.database.client.DatabaseException;
 import com.google.code.gwt.database.client.SQLResultSet;
 import com.google.code.gwt.database.client.SQLResultSetRowList;
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
 
 /**
  * This List type is used to operate the database {@link SQLResultSet} as a
@@ -40,6 +41,7 @@ public final class ResultSetList<T extends JavaScriptObject> extends
     AbstractList<T> {
 
   private SQLResultSetRowList<T> resultSet;
+  private JsArray<T> rows;
 
   /**
    * Creates a new List using the specified resultSet as data source.
@@ -50,17 +52,43 @@ public final class ResultSetList<T extends JavaScriptObject> extends
    * </p>
    */
   public ResultSetList(SQLResultSet<T> resultSet) {
-    this.resultSet = resultSet.getRows();
+    this(resultSet, false);
+  }
+
+  /**
+   * Creates a new List with the rows of the specified resultSet.
+   * 
+   * @param copyRows <code>true</code> to copy all rows into a plain
+   *          JavaScript array during instantiation (see
+   *          {@link SQLResultSetRowList#toArray()}), which takes one native
+   *          call instead of one per accessed row, but copies rows which might
+   *          never be accessed; <code>false</code> to use the resultSet as the
+   *          sole data source
+   */
+  public ResultSetList(SQLResultSet<T> resultSet, boolean copyRows) {
+    if (copyRows) {
+      this.rows = resultSet.getRows().toArray();
+    } else {
+      this.resultSet = resultSet.getRows();
+    }
   }
 
   @Override
   public T get(int index) {
-    try {
-      return resultSet.getItem(index);
-    } catch (DatabaseException e) {
+    if (rows == null) {
+      try {
+        return resultSet.getItem(index);
+      } catch (DatabaseException e) {
+        // Make sure to satisfy the API contract:
+        throw new IndexOutOfBoundsException(e.getMessage());
+      }
+    }
+    if (index < 0 || index >= rows.length()) {
       // Make sure to satisfy the API contract:
-      throw new IndexOutOfBoundsException(e.getMessage());
+      throw new IndexOutOfBoundsException("Index " + index
+          + " out of bounds: size=" + rows.length());
     }
+    return rows.get(index);
   }
 
   /**
@@ -69,6 +97,6 @@ public final class ResultSetList<T extends JavaScriptObject> extends
    */
   @Override
   public int size() {
-    return resultSet.getLength();
+    return rows != null ? rows.length() : resultSet.getLength();
   }
 }
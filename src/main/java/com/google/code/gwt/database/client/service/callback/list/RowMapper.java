@@ -0,0 +1,88 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.callback.list;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.google.code.gwt.database.client.SQLResultSet;
+import com.google.code.gwt.database.client.service.RowType;
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Used in the {@link DataServiceGenerator} to reduce generated boilerplate
+ * code.
+ * 
+ * <p>
+ * The Generator implements the {@link #mapRows(JavaScriptObject, List)}
+ * method for each {@link RowType}, as one native function creating and
+ * filling the objects of all rows.
+ * </p>
+ * 
+ * @param <T> the type used to represent a row in the resultset
+ * 
+ * @author bguijt
+ */
+public abstract class RowMapper<T> {
+
+  /**
+   * Returns the rows of the specified resultSet as a List of new objects.
+   */
+  public List<T> map(SQLResultSet<?> resultSet) {
+    JavaScriptObject rows = getRows(resultSet);
+    List<T> result = new ArrayList<T>(getLength(rows));
+    mapRows(rows, result);
+    return result;
+  }
+
+  /**
+   * Adds an object for each row in the specified SQLResultSetRowList to the
+   * result.
+   */
+  protected abstract void mapRows(JavaScriptObject rows, List<T> result);
+
+  /**
+   * Converts a column value to a <code>long</code> field value.
+   */
+  protected static long toLong(double value) {
+    return (long) value;
+  }
+
+  /**
+   * Converts a column value to a {@link Long} field value.
+   */
+  protected static Long toLongObject(double value) {
+    return Long.valueOf((long) value);
+  }
+
+  /**
+   * Converts a column value (in milliseconds) to a {@link Date} field value.
+   */
+  protected static Date toDate(double value) {
+    return new Date((long) value);
+  }
+
+  private static native JavaScriptObject getRows(SQLResultSet<?> resultSet) /*-{
+    return resultSet.rows;
+  }-*/;
+
+  private static native int getLength(JavaScriptObject rows) /*-{
+    return rows.length;
+  }-*/;
+}
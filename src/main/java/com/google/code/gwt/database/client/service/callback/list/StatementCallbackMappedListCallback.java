@@ -0,0 +1,68 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.callback.list;
+
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.SQLResultSet;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.RowType;
+import com.google.code.gwt.database.client.service.callback.DataServiceStatementCallback;
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+
+/**
+ * Used in the {@link DataServiceGenerator} to reduce generated boilerplate
+ * code.
+ * 
+ * <p>
+ * This StatementCallback impl is applied specifically to the
+ * {@link ListCallback} service methods of a {@link RowType}.
+ * </p>
+ * 
+ * @param <T> the type used to represent a row in the resultset
+ * 
+ * @author bguijt
+ */
+public class StatementCallbackMappedListCallback<T> extends
+    DataServiceStatementCallback<GenericRow> {
+
+  private TransactionCallbackMappedListCallback<T> txCallback;
+  private RowMapper<T> mapper;
+
+  /**
+   * Creates a StatementCallback with a ListCallback-specific
+   * TransactionCallback, mapping the rows with the specified mapper.
+   */
+  public StatementCallbackMappedListCallback(
+      TransactionCallbackMappedListCallback<T> txCallback, RowMapper<T> mapper) {
+    this.txCallback = txCallback;
+    this.mapper = mapper;
+  }
+
+  @Override
+  protected void storeError(int code, String message) {
+    txCallback.storeStatementError(code, message);
+  }
+
+  /**
+   * Maps the rows of the resultSet and stores them in the TransactionCallback
+   */
+  public void onSuccess(SQLTransaction transaction,
+      SQLResultSet<GenericRow> resultSet) {
+    txCallback.storeRows(mapper.map(resultSet));
+  }
+}
@@ -49,7 +49,25 @@ public abstract class TransactionCallbackListCallback<T extends JavaScriptObject
    * Store the resultSet for later retrieval when the transaction has ended.
    */
   protected void storeResultSet(SQLResultSet<T> resultSet) {
-    store = new ResultSetList<T>(resultSet);
+    store = new ResultSetList<T>(resultSet, isCopyRows());
+  }
+
+  /**
+   * Returns <code>true</code> if the rows are copied out of the resultSet at
+   * once - see
+   * {@link com.google.code.gwt.database.client.service.Select#copyRows()}.
+   */
+  protected boolean isCopyRows() {
+    return false;
+  }
+
+  /**
+   * Clears the stored resultSet.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+    store = null;
   }
 
   /**
@@ -57,7 +75,8 @@ public abstract class TransactionCallbackListCallback<T extends JavaScriptObject
    * callback method with the value stored at
    * {@link #storeResultSet(SQLResultSet)}.
    */
-  public void onTransactionSuccess() {
-    getCallback().onSuccess(store);
+  @Override
+  protected void onTransactionSuccess(ListCallback<T> callback) {
+    callback.onSuccess(store);
   }
 }
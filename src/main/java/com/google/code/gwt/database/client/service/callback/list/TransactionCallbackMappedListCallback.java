@@ -0,0 +1,77 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.callback.list;
+
+import java.util.List;
+
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.RowType;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+
+/**
+ * Used in the {@link DataServiceGenerator} to reduce generated boilerplate
+ * code.
+ * 
+ * <p>
+ * The Generator implements the onTransactionStart() method body. This
+ * TransactionCallback is applied to the {@link ListCallback} service methods
+ * of a {@link RowType}.
+ * </p>
+ * 
+ * @param <T> the type used to represent a row in the resultset
+ * 
+ * @author bguijt
+ */
+public abstract class TransactionCallbackMappedListCallback<T> extends
+    DataServiceTransactionCallback<ListCallback<T>> {
+
+  private List<T> store;
+
+  /**
+   * Creates a new TransactionCallback with the specified DataService' List
+   * callback.
+   */
+  public TransactionCallbackMappedListCallback(ListCallback<T> callback) {
+    super(callback);
+  }
+
+  /**
+   * Store the mapped rows for later retrieval when the transaction has ended.
+   */
+  protected void storeRows(List<T> rows) {
+    store = rows;
+  }
+
+  /**
+   * Clears the stored rows.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+    store = null;
+  }
+
+  /**
+   * Invokes the DataService' {@link ListCallback#onSuccess(List)} callback
+   * method with the value stored at {@link #storeRows(List)}.
+   */
+  @Override
+  protected void onTransactionSuccess(ListCallback<T> callback) {
+    callback.onSuccess(store);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.callback.rowid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.RowIdListCallback;
+import com.google.code.gwt.database.client.service.callback.CallbackGatherer;
+
+/**
+ * Merges the ROWID's of a {@link RowIdListCallback} call executed on several
+ * shards, in shard order.
+ * 
+ * @author bguijt
+ */
+public class RowIdListCallbackGatherer extends
+    CallbackGatherer<RowIdListCallback> {
+
+  private List<List<Integer>> rowIds;
+
+  /**
+   * Creates a gatherer for the specified callback and number of shards.
+   */
+  public RowIdListCallbackGatherer(RowIdListCallback callback, int shardCount) {
+    super(callback, shardCount);
+    rowIds = new ArrayList<List<Integer>>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      rowIds.add(null);
+    }
+  }
+
+  @Override
+  public RowIdListCallback getCallback(final int shard) {
+    return new RowIdListCallback() {
+      public void onSuccess(List<Integer> result) {
+        rowIds.set(shard, result);
+        shardSucceeded();
+      }
+
+      public void onFailure(DataServiceException error) {
+        shardFailed(error);
+      }
+    };
+  }
+
+  @Override
+  protected void onSuccess(RowIdListCallback callback) {
+    List<Integer> merged = new ArrayList<Integer>();
+    for (List<Integer> result : rowIds) {
+      merged.addAll(result);
+    }
+    callback.onSuccess(merged);
+  }
+}
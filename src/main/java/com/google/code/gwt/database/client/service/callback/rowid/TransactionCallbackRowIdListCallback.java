@@ -37,6 +37,7 @@ public abstract class TransactionCallbackRowIdListCallback extends
     DataServiceTransactionCallback<RowIdListCallback> {
 
   private List<Integer> rowIds = new ArrayList<Integer>();
+  private int committed = 0;
 
   /**
    * Creates a new TransactionCallback with the specified DataService' List
@@ -53,11 +54,29 @@ public abstract class TransactionCallbackRowIdListCallback extends
     rowIds.add(rowId);
   }
 
+  /**
+   * Keeps the ROWID's collected so far when a later chunk is reset.
+   */
+  @Override
+  protected void onChunkSuccess() {
+    committed = rowIds.size();
+  }
+
+  /**
+   * Clears the ROWID's collected since the last committed chunk.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+    rowIds.subList(committed, rowIds.size()).clear();
+  }
+
   /**
    * Invokes the DataService' {@link RowIdListCallback#onSuccess(List)} callback
    * method with the List accumulated at {@link #addRowId(Integer)}.
    */
-  public void onTransactionSuccess() {
-    getCallback().onSuccess(rowIds);
+  @Override
+  protected void onTransactionSuccess(RowIdListCallback callback) {
+    callback.onSuccess(rowIds);
   }
 }
@@ -49,8 +49,18 @@ public abstract class TransactionCallbackScalarCallback<T> extends
    * Invokes the DataService' {@link ScalarCallback#onSuccess(Object)} callback
    * method with the value stored at {@link #storeValue(Object)}.
    */
-  public void onTransactionSuccess() {
-    getCallback().onSuccess(store);
+  @Override
+  protected void onTransactionSuccess(ScalarCallback<T> callback) {
+    callback.onSuccess(store);
+  }
+
+  /**
+   * Clears the stored value.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+    store = null;
   }
 
   /**
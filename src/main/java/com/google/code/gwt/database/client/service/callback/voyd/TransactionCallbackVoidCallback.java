@@ -44,7 +44,8 @@ public abstract class TransactionCallbackVoidCallback extends
   /**
    * Invokes the DataService' {@link VoidCallback#onSuccess()} callback method.
    */
-  public void onTransactionSuccess() {
-    getCallback().onSuccess();
+  @Override
+  protected void onTransactionSuccess(VoidCallback callback) {
+    callback.onSuccess();
   }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.callback.voyd;
+
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.code.gwt.database.client.service.callback.CallbackGatherer;
+
+/**
+ * Reports the outcome of a {@link VoidCallback} call executed on several
+ * shards.
+ * 
+ * @author bguijt
+ */
+public class VoidCallbackGatherer extends CallbackGatherer<VoidCallback> {
+
+  /**
+   * Creates a gatherer for the specified callback and number of shards.
+   */
+  public VoidCallbackGatherer(VoidCallback callback, int shardCount) {
+    super(callback, shardCount);
+  }
+
+  @Override
+  public VoidCallback getCallback(int shard) {
+    return new VoidCallback() {
+      public void onSuccess() {
+        shardSucceeded();
+      }
+
+      public void onFailure(DataServiceException error) {
+        shardFailed(error);
+      }
+    };
+  }
+
+  @Override
+  protected void onSuccess(VoidCallback callback) {
+    callback.onSuccess();
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.Database;
+import com.google.code.gwt.database.client.service.Callback;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.DataServiceException;
+
+/**
+ * Base class for all generated {@link DataService} implementations annotated
+ * with {@link com.google.code.gwt.database.client.service.RunAsync}.
+ * 
+ * <p>
+ * The actual DataService proxy is created in a <code>GWT.runAsync()</code>
+ * callback, so its code is left out of the initial download. This class
+ * queues the calls until the proxy is available. The generated subclass
+ * passes each call on as the index of the service method and an array of
+ * arguments, rather than as an object of a class per service method, to keep
+ * the code left in the initial download small.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public abstract class AsyncDataService implements DataService {
+
+  private DataService service = null;
+  private boolean loading = false;
+  private List<PendingCall> pendingCalls = new ArrayList<PendingCall>();
+
+  /**
+   * Represents a call made while the DataService is loading.
+   */
+  private static class PendingCall {
+    private int method;
+    private Object[] args;
+
+    PendingCall(int method, Object[] args) {
+      this.method = method;
+      this.args = args;
+    }
+  }
+
+  /**
+   * Loads the code of the actual DataService proxy, and invokes
+   * {@link #onLoad(DataService)} or {@link #onLoadFailure(Throwable)}
+   * when done.
+   */
+  protected abstract void load();
+
+  /**
+   * Invokes the specified service method of the specified DataService.
+   * 
+   * @param method the index of the service method
+   * @param args the arguments of the call, ending with its callback
+   */
+  protected abstract void invoke(DataService service, int method,
+      Object[] args);
+
+  /**
+   * Invokes the specified service method on the {@link #getService() actual
+   * DataService}, as soon as it is loaded.
+   * 
+   * @param method the index of the service method
+   * @param args the arguments of the call, ending with its callback, which is
+   *          notified if the DataService cannot be loaded
+   */
+  protected final void run(int method, Object[] args) {
+    if (service != null) {
+      invoke(service, method, args);
+      return;
+    }
+    pendingCalls.add(new PendingCall(method, args));
+    if (!loading) {
+      loading = true;
+      load();
+    }
+  }
+
+  /**
+   * Registers the loaded DataService, and executes the calls made while it
+   * was loading.
+   */
+  protected final void onLoad(DataService service) {
+    this.service = service;
+    loading = false;
+    List<PendingCall> calls = pendingCalls;
+    pendingCalls = new ArrayList<PendingCall>();
+    for (PendingCall call : calls) {
+      invoke(service, call.method, call.args);
+    }
+  }
+
+  /**
+   * Fails the calls made while the DataService was loading. The next call
+   * tries to load the DataService again.
+   */
+  protected final void onLoadFailure(Throwable reason) {
+    loading = false;
+    List<PendingCall> calls = pendingCalls;
+    pendingCalls = new ArrayList<PendingCall>();
+    DataServiceException error = new DataServiceException(
+        "Unable to load DataService: " + reason.getMessage());
+    for (PendingCall call : calls) {
+      ((Callback) call.args[call.args.length - 1]).onFailure(error);
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the actual DataService is loaded.
+   */
+  public final boolean isLoaded() {
+    return service != null;
+  }
+
+  /**
+   * Returns the actual DataService, e.g. to configure it or to inspect its
+   * statistics, or <code>null</code> if it is not loaded yet.
+   */
+  public final DataService getService() {
+    return service;
+  }
+
+  /**
+   * Returns the Database of the actual DataService, or <code>null</code> if it
+   * is not loaded yet.
+   */
+  public final Database getDatabase() {
+    return service != null ? service.getDatabase() : null;
+  }
+}
@@ -16,12 +16,26 @@
 
 package com.google.code.gwt.database.client.service.impl;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+
 import com.google.code.gwt.database.client.Database;
 import com.google.code.gwt.database.client.DatabaseException;
+import com.google.code.gwt.database.client.SQLArguments;
+import com.google.code.gwt.database.client.SQLTransaction;
 import com.google.code.gwt.database.client.service.Callback;
 import com.google.code.gwt.database.client.service.DataService;
 import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.Lane;
+import com.google.code.gwt.database.client.service.OverflowPolicy;
+import com.google.code.gwt.database.client.service.UnitOfWork;
+import com.google.code.gwt.database.client.service.VoidCallback;
 import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 
 /**
  * Base class for all generated {@link DataService} implementations using the
@@ -33,17 +47,87 @@ public abstract class BaseDataService implements DataService {
 
   private static final String ERR_MSG = "Unable to open Web Database ";
 
-  private static Database database = null;
+  private DatabaseConnection connection = null;
+  private int shardIndex = 0;
+
+  /**
+   * The transaction joined by all DataService calls while its unit of work is
+   * executed - see {@link #runInTransaction(UnitOfWork, VoidCallback)}. Only
+   * the calls on the same Database can join it.
+   */
+  private static JoinedTransaction joinedTransaction = null;
+
+  /**
+   * The lane overriding the lane of each transaction - see
+   * {@link #runInLane(Lane, ScheduledCommand)}.
+   */
+  private Lane laneOverride = null;
+
+  /**
+   * Group commit settings - see {@link #setGroupCommit(int, int)}.
+   */
+  private int groupCommitDelay = -1;
+  private int groupCommitMaxSize;
+  private TransactionBatch pendingWrites;
+
+  /**
+   * Read coalescing settings - see {@link #setCoalesceReads(int)}.
+   */
+  private int coalesceReadsMaxSize = 0;
+  private TransactionBatch pendingReads;
+
+  /**
+   * Pending calls limit settings - see
+   * {@link #setMaxPending(int, OverflowPolicy)}.
+   */
+  private int maxPending = 0;
+  private OverflowPolicy overflowPolicy = OverflowPolicy.QUEUE;
+  private int startedCount = 0;
+  private LinkedList<WaitingCall> waitingCalls = new LinkedList<WaitingCall>();
 
   /**
-   * Returns the Database connection singleton.
+   * Retry settings - see {@link #setRetryPolicy(RetryPolicy)}.
+   */
+  private RetryPolicy retryPolicy;
+  private Map<String, Integer> retryCounts = new HashMap<String, Integer>();
+
+  /**
+   * Large IN (...) list settings - see {@link #setInListThreshold(int)}.
+   */
+  private int inListThreshold = 500;
+
+  /**
+   * Represents a call waiting for one of the started transactions to complete.
+   */
+  private static class WaitingCall {
+    private DataServiceTransactionCallback<?> txCallback;
+    private boolean readOnly;
+    private Lane lane;
+
+    WaitingCall(DataServiceTransactionCallback<?> txCallback, boolean readOnly,
+        Lane lane) {
+      this.txCallback = txCallback;
+      this.readOnly = readOnly;
+      this.lane = lane;
+    }
+  }
+
+  /**
+   * The read-only transactions in progress which can be shared - see
+   * {@link #readTransaction(DataServiceTransactionCallback, String, Object[])}.
+   */
+  private Map<String, DataServiceTransactionCallback<?>> singleFlights = new HashMap<String, DataServiceTransactionCallback<?>>();
+
+  /**
+   * Returns the Database of this DataService' connection.
    */
   public final Database getDatabase() {
     return getDatabase(null);
   }
 
   /**
-   * Returns the Database connection singleton.
+   * Returns the Database of this DataService' connection, opening it if no
+   * other DataService has done so yet - see {@link DatabaseRegistry}.
    * 
    * @param callback if not <code>null</code>, any initialization errors go to
    *          its {@link Callback#onFailure(DataServiceException)} callback
@@ -51,25 +135,79 @@ public abstract class BaseDataService implements DataService {
    * @return a Database instance, or <code>null</code> if something went wrong.
    */
   protected final Database getDatabase(Callback callback) {
-    if (database == null) {
+    if (connection == null) {
+      connection = DatabaseRegistry.getConnection(getConnectionName(),
+          getConnectionVersion());
+    }
+    if (connection == null) {
       if (!Database.isSupported()) {
         callFailure(callback, ERR_MSG + "- API is NOT supported");
         return null;
       }
       try {
-        database = openDatabase();
+        Database database = openDatabase();
         if (database == null) {
           callFailure(callback, ERR_MSG + getDatabaseDetails()
               + ": openDatabase() returned null (hostedmode?)");
+        } else {
+          connection = DatabaseRegistry.register(getConnectionName(),
+              getConnectionVersion(), database);
         }
       } catch (DatabaseException e) {
         callFailure(callback, ERR_MSG + getDatabaseDetails() + ": "
             + e.getMessage());
       }
     }
-    return database;
+    return connection != null ? connection.getDatabase() : null;
   }
 
+  /**
+   * Returns the connection of this DataService, or <code>null</code> if the
+   * Database could not be opened.
+   */
+  public final DatabaseConnection getConnection() {
+    return getDatabase() != null ? connection : null;
+  }
+
+  /**
+   * Returns the scheduler of the transactions on the
+   * {@link #getDatabase() Database}, or <code>null</code> if the Database
+   * could not be opened.
+   */
+  public final TransactionScheduler getTransactionScheduler() {
+    return getDatabase() != null ? connection.getScheduler() : null;
+  }
+
+  /**
+   * Sets the index of the shard this DataService represents, if it is part
+   * of a {@link ShardedDataService}.
+   */
+  final void setShardIndex(int shardIndex) {
+    this.shardIndex = shardIndex;
+  }
+
+  /**
+   * Returns the index of the shard this DataService represents, or
+   * <code>0</code> if it is not sharded.
+   */
+  public final int getShardIndex() {
+    return shardIndex;
+  }
+
+  /**
+   * Returns the name of the Database, as specified by the
+   * {@link com.google.code.gwt.database.client.service.Connection}
+   * annotation. The name of a shard's Database includes the shard index.
+   */
+  protected abstract String getConnectionName();
+
+  /**
+   * Returns the version of the Database, as specified by the
+   * {@link com.google.code.gwt.database.client.service.Connection}
+   * annotation.
+   */
+  protected abstract String getConnectionVersion();
+
   /**
    * Opens the actual Web Database.
    * 
@@ -98,14 +236,198 @@ public abstract class BaseDataService implements DataService {
     }
   }
 
+  /**
+   * Enables or disables group commit for this DataService.
+   * 
+   * <p>
+   * With group commit enabled, the read/write transactions started within a
+   * window of <code>delay</code> milliseconds are executed in a single, shared
+   * transaction. Each caller still receives its own callback.
+   * </p>
+   * 
+   * @param delay the number of milliseconds to collect transactions, where
+   *          <code>0</code> collects the transactions started in the same event
+   *          loop tick. A negative value disables group commit.
+   * @param maxSize the maximum number of transactions to collect in a single
+   *          shared transaction
+   * @see com.google.code.gwt.database.client.service.GroupCommit
+   */
+  public final void setGroupCommit(int delay, int maxSize) {
+    flush(pendingWrites);
+    groupCommitDelay = delay;
+    groupCommitMaxSize = maxSize;
+  }
+
+  /**
+   * Enables or disables read coalescing for this DataService.
+   * 
+   * <p>
+   * With read coalescing enabled, the read-only transactions started in the
+   * same event loop tick are executed in a single, shared read-only
+   * transaction. Each caller still receives its own callback.
+   * </p>
+   * 
+   * @param maxSize the maximum number of transactions to collect in a single
+   *          shared transaction. A value of <code>0</code> or less disables
+   *          read coalescing.
+   * @see com.google.code.gwt.database.client.service.CoalesceReads
+   */
+  public final void setCoalesceReads(int maxSize) {
+    flush(pendingReads);
+    coalesceReadsMaxSize = maxSize;
+  }
+
+  /**
+   * Limits the number of pending transactions of this DataService.
+   * 
+   * <p>
+   * At most <code>maxPending</code> transactions are started without being
+   * completed. The specified <code>policy</code> determines what happens to
+   * the calls beyond that.
+   * </p>
+   * 
+   * @param maxPending the maximum number of started transactions. A value of
+   *          <code>0</code> or less removes the limit.
+   * @param policy what to do with the calls beyond the maximum
+   * @see com.google.code.gwt.database.client.service.MaxPending
+   */
+  public final void setMaxPending(int maxPending, OverflowPolicy policy) {
+    this.maxPending = maxPending;
+    this.overflowPolicy = policy;
+    startWaitingCalls();
+  }
+
+  /**
+   * Returns the number of calls to this DataService of which the transaction
+   * is not completed yet, including the calls waiting to be started.
+   */
+  public final int getPendingCount() {
+    return startedCount + waitingCalls.size();
+  }
+
+  /**
+   * Sets the policy to retry failed transactions with, or <code>null</code> to
+   * report every failure right away.
+   * 
+   * @see com.google.code.gwt.database.client.service.Retry
+   */
+  public final void setRetryPolicy(RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+  }
+
+  /**
+   * Returns the number of times the transactions of the specified service
+   * method have been retried.
+   */
+  public final int getRetryCount(String methodName) {
+    Integer count = retryCounts.get(methodName);
+    return count != null ? count : 0;
+  }
+
+  /**
+   * Sets the number of items above which a collection or array parameter of
+   * an <code>IN (...)</code> list is loaded into a temporary table, instead of
+   * binding each item to a placeholder of its own. The default is
+   * <code>500</code>.
+   * 
+   * @see com.google.code.gwt.database.client.service.InListThreshold
+   */
+  public final void setInListThreshold(int threshold) {
+    this.inListThreshold = threshold;
+  }
+
+  /**
+   * Returns the number of items above which a collection or array parameter
+   * of an <code>IN (...)</code> list is loaded into a temporary table.
+   */
+  public final int getInListThreshold() {
+    return inListThreshold;
+  }
+
+  /**
+   * Executes the specified command, scheduling the transactions of all calls
+   * to this DataService made by the command in the specified lane, regardless
+   * of their {@link com.google.code.gwt.database.client.service.Priority}.
+   */
+  public final void runInLane(Lane lane, ScheduledCommand command) {
+    Lane previous = laneOverride;
+    laneOverride = lane;
+    try {
+      command.execute();
+    } finally {
+      laneOverride = previous;
+    }
+  }
+
+  /**
+   * Executes the specified unit of work in one single, atomic read/write
+   * transaction. The DataService calls made by the unit of work join this
+   * transaction instead of starting their own. Each call still receives its
+   * own callback once the transaction has completed; if the transaction
+   * fails, all of them fail.
+   * 
+   * @param callback notified of the outcome of the transaction as a whole
+   *          (may be <code>null</code>)
+   */
+  public final void runInTransaction(UnitOfWork work, VoidCallback callback) {
+    Database db = getDatabase(callback);
+    if (db != null) {
+      connection.getScheduler().transaction(new JoinedTransaction(db, work,
+          callback) {
+        @Override
+        public void onTransactionStart(SQLTransaction transaction) {
+          JoinedTransaction previous = joinedTransaction;
+          joinedTransaction = this;
+          try {
+            super.onTransactionStart(transaction);
+          } finally {
+            joinedTransaction = previous;
+          }
+        }
+      }, laneOverride != null ? laneOverride : Lane.NORMAL);
+    }
+  }
+
+  /**
+   * Executes the specified unit of work in one single, atomic read/write
+   * transaction.
+   * 
+   * @see #runInTransaction(UnitOfWork, VoidCallback)
+   */
+  public final void runInTransaction(UnitOfWork work) {
+    runInTransaction(work, null);
+  }
+
+  /**
+   * Lets the specified transaction join the transaction of the unit of work
+   * being executed, if any.
+   * 
+   * @return <code>true</code> if the transaction has joined
+   */
+  private boolean join(DataServiceTransactionCallback<?> txCallback) {
+    if (joinedTransaction == null
+        || joinedTransaction.getDatabase() != connection.getDatabase()) {
+      return false;
+    }
+    joinedTransaction.join(txCallback);
+    return true;
+  }
+
+  /**
+   * Returns the lane to schedule the specified transaction in.
+   */
+  private Lane getLane(DataServiceTransactionCallback<?> txCallback) {
+    return laneOverride != null ? laneOverride : txCallback.getLane();
+  }
+
   /**
    * Invokes a transaction in read/write mode on the
    * {@link #getDatabase(Callback)} instance.
    */
   protected void transaction(DataServiceTransactionCallback<?> txCallback) {
     Database db = getDatabase(txCallback.getCallback());
-    if (db != null) {
-      db.transaction(txCallback);
+    if (db != null && !join(txCallback)) {
+      submit(txCallback, false);
     }
   }
 
@@ -115,8 +437,255 @@ public abstract class BaseDataService implements DataService {
    */
   protected void readTransaction(DataServiceTransactionCallback<?> txCallback) {
     Database db = getDatabase(txCallback.getCallback());
-    if (db != null) {
-      db.readTransaction(txCallback);
+    if (db != null && !join(txCallback)) {
+      submit(txCallback, true);
+    }
+  }
+
+  /**
+   * Executes the service method described by the specified descriptor, with
+   * the specified arguments. Used by the service methods generated in
+   * {@link com.google.code.gwt.database.client.service.Compact compact} form.
+   * 
+   * @param args the arguments, or <code>null</code> if the SQL statement has
+   *          no parameters
+   * @param callback the callback of the service method
+   */
+  protected final void execute(MethodDescriptor method, SQLArguments args,
+      Callback callback) {
+    DataServiceTransactionCallback<?> txCallback = method.createTransactionCallback(
+        args, callback);
+    if (method.isReadOnly()) {
+      readTransaction(txCallback);
+    } else {
+      transaction(txCallback);
+    }
+  }
+
+  /**
+   * Invokes a transaction in read-only mode on the
+   * {@link #getDatabase(Callback)} instance, executing the specified SQL
+   * statement - unless an identical transaction is already in progress. In
+   * that case, the specified transaction shares the outcome of the one in
+   * progress.
+   * 
+   * @see com.google.code.gwt.database.client.service.SingleFlight
+   */
+  protected void readTransaction(
+      final DataServiceTransactionCallback<?> txCallback, String sql,
+      Object[] params) {
+    Database db = getDatabase(txCallback.getCallback());
+    if (db != null && !join(txCallback)) {
+      if (txCallback.isReadWrite()) {
+        // The statement depends on a temporary table:
+        submit(txCallback, false);
+        return;
+      }
+      final String key = getStatementKey(sql, params);
+      DataServiceTransactionCallback<?> inProgress = singleFlights.get(key);
+      if (inProgress != null && inProgress.getClass() == txCallback.getClass()) {
+        inProgress.share(txCallback);
+        return;
+      }
+      singleFlights.put(key, txCallback);
+      txCallback.addCompletionCommand(new ScheduledCommand() {
+        public void execute() {
+          if (singleFlights.get(key) == txCallback) {
+            singleFlights.remove(key);
+          }
+        }
+      });
+      submit(txCallback, true);
+    }
+  }
+
+  /**
+   * Starts the specified transaction, unless the maximum number of pending
+   * transactions is reached. In that case, the {@link OverflowPolicy}
+   * determines what happens to it.
+   */
+  private void submit(DataServiceTransactionCallback<?> txCallback,
+      boolean readOnly) {
+    if (readOnly && txCallback.isReadWrite()) {
+      // E.g. a read which creates a temporary table:
+      readOnly = false;
+    }
+    Lane lane = getLane(txCallback);
+    if (maxPending <= 0 || startedCount < maxPending) {
+      start(txCallback, readOnly, lane);
+      return;
+    }
+    switch (overflowPolicy) {
+      case REJECT:
+        rejectCall(txCallback);
+        return;
+      case DROP_OLDEST_BACKGROUND:
+        if (!dropOldestWaitingCall(Lane.BACKGROUND) && lane == Lane.BACKGROUND) {
+          rejectCall(txCallback);
+          return;
+        }
+        break;
+      default:
+        break;
+    }
+    waitingCalls.add(new WaitingCall(txCallback, readOnly, lane));
+  }
+
+  /**
+   * Starts the specified transaction in the specified lane, counting it as
+   * pending until it is completed.
+   */
+  private void start(final DataServiceTransactionCallback<?> txCallback,
+      final boolean readOnly, final Lane lane) {
+    startedCount++;
+    txCallback.addCompletionCommand(new ScheduledCommand() {
+      public void execute() {
+        startedCount--;
+        startWaitingCalls();
+      }
+    });
+    if (retryPolicy != null) {
+      txCallback.setRetryPolicy(retryPolicy, new ScheduledCommand() {
+        public void execute() {
+          String methodName = txCallback.getMethodName();
+          retryCounts.put(methodName, getRetryCount(methodName) + 1);
+          restart(txCallback, readOnly, lane);
+        }
+      });
+    }
+    if (txCallback.getChunkSize() > 0) {
+      txCallback.setChunkCommand(new ScheduledCommand() {
+        public void execute() {
+          restart(txCallback, readOnly, lane);
+        }
+      });
+    }
+    if (readOnly) {
+      if (coalesceReadsMaxSize <= 0) {
+        connection.getScheduler().readTransaction(txCallback, lane);
+      } else {
+        if (pendingReads == null) {
+          pendingReads = new TransactionBatch(connection.getScheduler(), true);
+          scheduleFlush(pendingReads, 0);
+        }
+        pendingReads.add(txCallback, lane);
+        if (pendingReads.size() >= coalesceReadsMaxSize) {
+          flush(pendingReads);
+        }
+      }
+    } else {
+      if (groupCommitDelay < 0) {
+        connection.getScheduler().transaction(txCallback, lane);
+      } else {
+        if (pendingWrites == null) {
+          pendingWrites = new TransactionBatch(connection.getScheduler(), false);
+          scheduleFlush(pendingWrites, groupCommitDelay);
+        }
+        pendingWrites.add(txCallback, lane);
+        if (pendingWrites.size() >= groupCommitMaxSize) {
+          flush(pendingWrites);
+        }
+      }
+    }
+  }
+
+  /**
+   * Executes the specified transaction once more, on its own, outside any
+   * batch.
+   */
+  private void restart(DataServiceTransactionCallback<?> txCallback,
+      boolean readOnly, Lane lane) {
+    if (readOnly) {
+      connection.getScheduler().readTransaction(txCallback, lane);
+    } else {
+      connection.getScheduler().transaction(txCallback, lane);
+    }
+  }
+
+  /**
+   * Starts waiting calls, in order of arrival, as long as the maximum number
+   * of pending transactions is not reached.
+   */
+  private void startWaitingCalls() {
+    while (!waitingCalls.isEmpty()
+        && (maxPending <= 0 || startedCount < maxPending)) {
+      WaitingCall call = waitingCalls.removeFirst();
+      start(call.txCallback, call.readOnly, call.lane);
+    }
+  }
+
+  /**
+   * Removes the oldest waiting call in the specified lane, and fails it.
+   * 
+   * @return <code>true</code> if a call was dropped
+   */
+  private boolean dropOldestWaitingCall(Lane lane) {
+    for (Iterator<WaitingCall> it = waitingCalls.iterator(); it.hasNext();) {
+      WaitingCall call = it.next();
+      if (call.lane == lane) {
+        it.remove();
+        call.txCallback.fail(new DataServiceException("Call dropped: "
+            + maxPending + " calls are pending on " + getDatabaseDetails()));
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void rejectCall(DataServiceTransactionCallback<?> txCallback) {
+    txCallback.fail(new DataServiceException("Call rejected: " + maxPending
+        + " calls are pending on " + getDatabaseDetails()));
+  }
+
+  /**
+   * Returns a String identifying the specified SQL statement with its
+   * parameter values, as they are bound by {@link SQLTransaction}.
+   */
+  private static String getStatementKey(String sql, Object[] params) {
+    StringBuilder key = new StringBuilder(sql);
+    if (params != null) {
+      for (Object param : params) {
+        // Separate the values with a character which is unlikely to appear in
+        // SQL, and tell null apart from the String "null":
+        key.append(param == null ? "\u0000" : "\u0000'" + param);
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Starts the specified batch, unless it is already started.
+   */
+  private void flush(TransactionBatch batch) {
+    if (batch != null && (batch == pendingWrites || batch == pendingReads)) {
+      if (batch == pendingWrites) {
+        pendingWrites = null;
+      } else {
+        pendingReads = null;
+      }
+      batch.execute();
+    }
+  }
+
+  /**
+   * Schedules the specified batch to start after <code>delay</code>
+   * milliseconds, or after the current event loop tick if <code>delay</code>
+   * is <code>0</code>.
+   */
+  private void scheduleFlush(final TransactionBatch batch, int delay) {
+    if (delay <= 0) {
+      Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+        public void execute() {
+          flush(batch);
+        }
+      });
+    } else {
+      Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+        public boolean execute() {
+          flush(batch);
+          return false;
+        }
+      }, delay);
     }
   }
 }
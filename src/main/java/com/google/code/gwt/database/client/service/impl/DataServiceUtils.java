@@ -17,6 +17,7 @@
 package com.google.code.gwt.database.client.service.impl;
 
 import java.util.AbstractSequentialList;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -30,110 +31,305 @@ import com.google.code.gwt.database.rebind.DataServiceGenerator;
  */
 public class DataServiceUtils {
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, boolean[] array) {
-    for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+  /**
+   * The largest number of placeholders kept by {@link #getPlaceholders(int)}.
+   */
+  private static final int MAX_CACHED_PLACEHOLDERS = 1024;
+
+  private static String[] placeholders = new String[] {"", "?"};
+
+  /**
+   * Returns the specified number of comma-separated <code>?</code>
+   * placeholders. The placeholders are cached per number, up to
+   * {@value #MAX_CACHED_PLACEHOLDERS}.
+   */
+  public static String getPlaceholders(int arity) {
+    if (arity > MAX_CACHED_PLACEHOLDERS) {
+      return buildPlaceholders(arity);
+    }
+    if (arity >= placeholders.length) {
+      String[] cache = new String[Math.min(MAX_CACHED_PLACEHOLDERS + 1,
+          Math.max(arity + 1, placeholders.length * 2))];
+      for (int i = 0; i < placeholders.length; i++) {
+        cache[i] = placeholders[i];
+      }
+      placeholders = cache;
+    }
+    String result = placeholders[arity];
+    if (result == null) {
+      result = placeholders[arity] = buildPlaceholders(arity);
+    }
+    return result;
+  }
+
+  private static String buildPlaceholders(int arity) {
+    StringBuilder sb = new StringBuilder(arity * 2);
+    for (int i = 0; i < arity; i++) {
+      if (i > 0) sb.append(",");
+      sb.append("?");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Copies the items of the specified array into <code>size</code>
+   * parameters, starting at the specified offset. If <code>size</code>
+   * exceeds the number of items, the last item is repeated to fill up the
+   * parameters; if it is smaller, only the first <code>size</code> items are
+   * copied.
+   * 
+   * @return the offset of the next parameter
+   * @see SqlTemplate#getSizes(int[])
+   */
+  public static int addParameters(Object[] params, int offset, boolean[] array, int size) {
+    for (int i=0; i<array.length && i<size; i++) {
       params[offset++] = array[i];
     }
-    return offset;
+    return pad(params, offset, size - Math.min(size, array.length));
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, byte[] array) {
-    for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+  public static int addParameters(Object[] params, int offset, byte[] array, int size) {
+    for (int i=0; i<array.length && i<size; i++) {
       params[offset++] = array[i];
     }
-    return offset;
+    return pad(params, offset, size - Math.min(size, array.length));
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, short[] array) {
-    for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+  public static int addParameters(Object[] params, int offset, short[] array, int size) {
+    for (int i=0; i<array.length && i<size; i++) {
       params[offset++] = array[i];
     }
-    return offset;
+    return pad(params, offset, size - Math.min(size, array.length));
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, char[] array) {
-    for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+  public static int addParameters(Object[] params, int offset, char[] array, int size) {
+    for (int i=0; i<array.length && i<size; i++) {
       params[offset++] = array[i];
     }
-    return offset;
+    return pad(params, offset, size - Math.min(size, array.length));
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, int[] array) {
-    for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+  public static int addParameters(Object[] params, int offset, int[] array, int size) {
+    for (int i=0; i<array.length && i<size; i++) {
       params[offset++] = array[i];
     }
-    return offset;
+    return pad(params, offset, size - Math.min(size, array.length));
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, long[] array) {
-    for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+  public static int addParameters(Object[] params, int offset, long[] array, int size) {
+    for (int i=0; i<array.length && i<size; i++) {
       params[offset++] = array[i];
     }
-    return offset;
+    return pad(params, offset, size - Math.min(size, array.length));
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, float[] array) {
-    for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+  public static int addParameters(Object[] params, int offset, float[] array, int size) {
+    for (int i=0; i<array.length && i<size; i++) {
       params[offset++] = array[i];
     }
-    return offset;
+    return pad(params, offset, size - Math.min(size, array.length));
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, double[] array) {
-    for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+  public static int addParameters(Object[] params, int offset, double[] array, int size) {
+    for (int i=0; i<array.length && i<size; i++) {
       params[offset++] = array[i];
     }
-    return offset;
+    return pad(params, offset, size - Math.min(size, array.length));
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, Object[] array) {
-    for (int i=0; i<array.length; i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+  public static int addParameters(Object[] params, int offset, Object[] array, int size) {
+    for (int i=0; i<array.length && i<size; i++) {
       params[offset++] = array[i];
     }
-    return offset;
+    return pad(params, offset, size - Math.min(size, array.length));
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, AbstractSequentialList<?> array) {
-    return addParameter(sql, params, offset, (Iterable<?>) array);
+  public static int addParameters(Object[] params, int offset, AbstractSequentialList<?> array, int size) {
+    return addParameters(params, offset, (Iterable<?>) array, size);
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, List<?> array) {
-    for (int i=0; i<array.size(); i++) {
-      if (i > 0) sql.append(",");
-      sql.append("?");
+  public static int addParameters(Object[] params, int offset, List<?> array, int size) {
+    for (int i=0; i<array.size() && i<size; i++) {
       params[offset++] = array.get(i);
     }
-    return offset;
+    return pad(params, offset, size - Math.min(size, array.size()));
   }
 
-  public static int addParameter(StringBuilder sql, Object[] params, int offset, Iterable<?> array) {
+  public static int addParameters(Object[] params, int offset, Iterable<?> array, int size) {
     int i = offset;
     for (Object _ : array) {
-      if (i > offset) sql.append(",");
-      sql.append("?");
+      if (i - offset == size) {
+        break;
+      }
       params[i++] = _;
     }
-    return i;
+    return pad(params, i, size - (i - offset));
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, boolean[], int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, boolean[] array) {
+    sql.append(getPlaceholders(array.length));
+    return addParameters(params, offset, array, array.length);
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, byte[], int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, byte[] array) {
+    sql.append(getPlaceholders(array.length));
+    return addParameters(params, offset, array, array.length);
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, short[], int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, short[] array) {
+    sql.append(getPlaceholders(array.length));
+    return addParameters(params, offset, array, array.length);
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, char[], int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, char[] array) {
+    sql.append(getPlaceholders(array.length));
+    return addParameters(params, offset, array, array.length);
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, int[], int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, int[] array) {
+    sql.append(getPlaceholders(array.length));
+    return addParameters(params, offset, array, array.length);
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, long[], int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, long[] array) {
+    sql.append(getPlaceholders(array.length));
+    return addParameters(params, offset, array, array.length);
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, float[], int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, float[] array) {
+    sql.append(getPlaceholders(array.length));
+    return addParameters(params, offset, array, array.length);
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, double[], int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, double[] array) {
+    sql.append(getPlaceholders(array.length));
+    return addParameters(params, offset, array, array.length);
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, Object[], int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, Object[] array) {
+    sql.append(getPlaceholders(array.length));
+    return addParameters(params, offset, array, array.length);
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, AbstractSequentialList, int)}
+   *             instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, AbstractSequentialList<?> array) {
+    return addParameter(sql, params, offset, (Iterable<?>) array);
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, List, int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, List<?> array) {
+    sql.append(getPlaceholders(array.size()));
+    return addParameters(params, offset, array, array.size());
+  }
+
+  /**
+   * @deprecated Use {@link #getPlaceholders(int)} and
+   *             {@link #addParameters(Object[], int, Iterable, int)} instead.
+   */
+  @Deprecated
+  public static int addParameter(StringBuilder sql, Object[] params, int offset, Iterable<?> array) {
+    int size = getSize(array);
+    sql.append(getPlaceholders(size));
+    return addParameters(params, offset, array, size);
+  }
+
+  /**
+   * Repeats the parameter before the specified offset <code>count</code>
+   * times.
+   */
+  private static int pad(Object[] params, int offset, int count) {
+    for (int i=0; i<count; i++) {
+      params[offset] = params[offset - 1];
+      offset++;
+    }
+    return offset;
   }
-  
+
+  /**
+   * Returns a multi-row INSERT statement, consisting of the specified prefix,
+   * the specified row tuple repeated <code>rows</code> times, and the specified
+   * suffix.
+   */
+  public static String getBulkSql(String prefix, String tuple, String suffix,
+      int rows) {
+    StringBuilder sql = new StringBuilder(prefix.length() + suffix.length()
+        + rows * (tuple.length() + 1));
+    sql.append(prefix);
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) sql.append(",");
+      sql.append(tuple);
+    }
+    return sql.append(suffix).toString();
+  }
+
+  /**
+   * Returns a copy of the specified items as a List, which allows them to be
+   * addressed by index. The items are copied because chunks of them are
+   * executed in separate transactions, during which the caller may modify
+   * the original collection.
+   */
+  public static <T> List<T> toList(Iterable<? extends T> items) {
+    List<T> list = new ArrayList<T>();
+    for (T item : items) {
+      list.add(item);
+    }
+    return list;
+  }
+
   public static int getSize(Iterable<?> array) {
     if (array instanceof Collection<?>) {
       return ((Collection<?>) array).size();
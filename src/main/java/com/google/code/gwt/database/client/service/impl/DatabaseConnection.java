@@ -0,0 +1,74 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.Database;
+
+/**
+ * Represents an open Web Database, identified by the name and version of its
+ * {@link com.google.code.gwt.database.client.service.Connection}, together
+ * with the scheduler of its transactions.
+ * 
+ * @see DatabaseRegistry
+ * 
+ * @author bguijt
+ */
+public class DatabaseConnection {
+
+  private String name;
+  private String version;
+  private Database database;
+  private TransactionScheduler scheduler;
+
+  /**
+   * Creates a connection to the specified, opened Database.
+   */
+  DatabaseConnection(String name, String version, Database database) {
+    this.name = name;
+    this.version = version;
+    this.database = database;
+    this.scheduler = new TransactionScheduler(database);
+  }
+
+  /**
+   * Returns the name of the Database.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the version of the Database.
+   */
+  public String getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the Database itself.
+   */
+  public Database getDatabase() {
+    return database;
+  }
+
+  /**
+   * Returns the scheduler of the transactions on the Database.
+   */
+  public TransactionScheduler getScheduler() {
+    return scheduler;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.code.gwt.database.client.Database;
+
+/**
+ * Keeps the Web Databases opened by the DataServices, one per
+ * {@link com.google.code.gwt.database.client.service.Connection} name and
+ * version.
+ * 
+ * <p>
+ * A Database is opened by the first DataService using it, and shared by all
+ * DataServices with the same Connection. DataServices with different
+ * Connections use different Databases, which execute their transactions
+ * independently of each other.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class DatabaseRegistry {
+
+  private static Map<String, DatabaseConnection> connections = new LinkedHashMap<String, DatabaseConnection>();
+
+  private DatabaseRegistry() {
+  }
+
+  /**
+   * Returns the connection with the specified name and version, or
+   * <code>null</code> if that Database is not opened (yet).
+   */
+  public static DatabaseConnection getConnection(String name, String version) {
+    return connections.get(getKey(name, version));
+  }
+
+  /**
+   * Returns all opened connections, in the order they were opened.
+   */
+  public static List<DatabaseConnection> getConnections() {
+    return new ArrayList<DatabaseConnection>(connections.values());
+  }
+
+  /**
+   * Registers the specified, opened Database.
+   */
+  static DatabaseConnection register(String name, String version,
+      Database database) {
+    DatabaseConnection connection = new DatabaseConnection(name, version,
+        database);
+    connections.put(getKey(name, version), connection);
+    return connection;
+  }
+
+  private static String getKey(String name, String version) {
+    return name + "\u0000" + version;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.Database;
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.UnitOfWork;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.GWT.UncaughtExceptionHandler;
+
+/**
+ * Executes a {@link UnitOfWork} in one single transaction, which is joined by
+ * the DataService calls made by the unit of work.
+ * 
+ * <p>
+ * Unlike a {@link TransactionBatch}, the transaction is atomic: if it fails,
+ * all calls which joined it fail.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class JoinedTransaction implements TransactionCallback {
+
+  private Database database;
+  private UnitOfWork work;
+  private VoidCallback callback;
+  private SQLTransaction transaction;
+  private List<DataServiceTransactionCallback<?>> txCallbacks = new ArrayList<DataServiceTransactionCallback<?>>();
+
+  /**
+   * Creates a transaction on the specified Database for the specified unit of
+   * work.
+   * 
+   * @param callback notified of the outcome of the transaction as a whole
+   *          (may be <code>null</code>)
+   */
+  public JoinedTransaction(Database database, UnitOfWork work,
+      VoidCallback callback) {
+    this.database = database;
+    this.work = work;
+    this.callback = callback;
+  }
+
+  /**
+   * Returns the Database of this transaction.
+   */
+  public Database getDatabase() {
+    return database;
+  }
+
+  /**
+   * Executes the SQL statements of the specified DataService call in this
+   * transaction.
+   */
+  public void join(DataServiceTransactionCallback<?> txCallback) {
+    txCallbacks.add(txCallback);
+    txCallback.onTransactionStart(transaction);
+  }
+
+  /**
+   * Executes the unit of work.
+   */
+  public void onTransactionStart(SQLTransaction transaction) {
+    this.transaction = transaction;
+    try {
+      work.execute(transaction);
+    } finally {
+      this.transaction = null;
+    }
+  }
+
+  /**
+   * Invokes the success callback of all calls which joined this transaction,
+   * followed by the callback of the unit of work.
+   */
+  public void onTransactionSuccess() {
+    for (DataServiceTransactionCallback<?> txCallback : txCallbacks) {
+      try {
+        txCallback.onTransactionSuccess();
+      } catch (RuntimeException e) {
+        handleException(e);
+      }
+    }
+    if (callback != null) {
+      callback.onSuccess();
+    }
+  }
+
+  /**
+   * Invokes the failure callback of all calls which joined this transaction,
+   * followed by the callback of the unit of work.
+   */
+  public void onTransactionFailure(SQLError error) {
+    for (DataServiceTransactionCallback<?> txCallback : txCallbacks) {
+      try {
+        txCallback.onTransactionFailure(error);
+      } catch (RuntimeException e) {
+        handleException(e);
+      }
+    }
+    if (callback != null) {
+      callback.onFailure(new DataServiceException(error));
+    }
+  }
+
+  /**
+   * Makes sure an exception thrown by one call doesn't affect the other calls
+   * in this transaction, if an {@link UncaughtExceptionHandler} is available.
+   */
+  private void handleException(RuntimeException e) {
+    UncaughtExceptionHandler ueh = GWT.getUncaughtExceptionHandler();
+    if (ueh == null) {
+      throw e;
+    }
+    ueh.onUncaughtException(e);
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.SQLArguments;
+import com.google.code.gwt.database.client.SQLResultSet;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.service.Callback;
+import com.google.code.gwt.database.client.service.Compact;
+import com.google.code.gwt.database.client.service.Lane;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.RowIdListCallback;
+import com.google.code.gwt.database.client.service.ScalarCallback;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceStatementCallback;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.code.gwt.database.client.service.callback.list.StatementCallbackListCallback;
+import com.google.code.gwt.database.client.service.callback.list.TransactionCallbackListCallback;
+import com.google.code.gwt.database.client.service.callback.rowid.StatementCallbackRowIdListCallback;
+import com.google.code.gwt.database.client.service.callback.rowid.TransactionCallbackRowIdListCallback;
+import com.google.code.gwt.database.client.service.callback.scalar.ScalarRow;
+import com.google.code.gwt.database.client.service.callback.scalar.TransactionCallbackScalarCallback;
+import com.google.code.gwt.database.client.service.callback.voyd.StatementCallbackVoidCallback;
+import com.google.code.gwt.database.client.service.callback.voyd.TransactionCallbackVoidCallback;
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Describes a service method generated in {@link Compact} form: its SQL
+ * statement, the kind of its result, its transaction mode and its lane.
+ * 
+ * <p>
+ * The {@link DataServiceGenerator} creates one MethodDescriptor per compact
+ * service method. The service method itself only evaluates its parameter
+ * values, and invokes
+ * {@link BaseDataService#execute(MethodDescriptor, SQLArguments, Callback)},
+ * which creates the transaction callback from the descriptor. This way the
+ * transaction and statement callback classes are shared by all compact
+ * service methods, instead of being generated for each of them.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public final class MethodDescriptor {
+
+  /**
+   * Represents the kind of result of a service method, which follows from the
+   * type of its {@link Callback}.
+   */
+  public enum ResultKind {
+    VOID, LIST, ROW_IDS, BYTE, SHORT, INTEGER, FLOAT, DOUBLE, BOOLEAN, STRING
+  }
+
+  private String name;
+  private String sql;
+  private ResultKind resultKind;
+  private boolean readOnly;
+  private Lane lane;
+
+  /**
+   * Creates a new descriptor.
+   * 
+   * @param name the name of the service method
+   * @param sql the SQL statement, with a <code>?</code> placeholder for each
+   *          parameter
+   * @param resultKind the kind of result
+   * @param readOnly <code>true</code> to execute the statement in a read-only
+   *          transaction
+   * @param lane the lane to schedule the transactions in, or <code>null</code>
+   *          for the default lane
+   */
+  public MethodDescriptor(String name, String sql, ResultKind resultKind,
+      boolean readOnly, Lane lane) {
+    this.name = name;
+    this.sql = sql;
+    this.resultKind = resultKind;
+    this.readOnly = readOnly;
+    this.lane = lane;
+  }
+
+  /**
+   * Returns the name of the service method.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the SQL statement executed by the service method.
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * Returns the kind of result of the service method.
+   */
+  public ResultKind getResultKind() {
+    return resultKind;
+  }
+
+  /**
+   * Returns <code>true</code> if the SQL statement is executed in a read-only
+   * transaction.
+   */
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /**
+   * Creates the transaction callback executing the SQL statement with the
+   * specified arguments, and reporting to the specified callback.
+   * 
+   * @param args the arguments, or <code>null</code> if the SQL
+   *          statement has no parameters
+   * @param callback the callback of the service method, which must match the
+   *          {@link #getResultKind() result kind}
+   */
+  @SuppressWarnings("unchecked")
+  DataServiceTransactionCallback<?> createTransactionCallback(
+      final SQLArguments args, Callback callback) {
+    switch (resultKind) {
+      case VOID:
+        return new TransactionCallbackVoidCallback((VoidCallback) callback) {
+          @Override
+          public String getMethodName() {
+            return name;
+          }
+          @Override
+          public Lane getLane() {
+            return lane != null ? lane : super.getLane();
+          }
+          public void onTransactionStart(SQLTransaction tx) {
+            execNative(tx, sql, args, new StatementCallbackVoidCallback(this));
+          }
+        };
+      case LIST:
+        return new TransactionCallbackListCallback<JavaScriptObject>(
+            (ListCallback<JavaScriptObject>) callback) {
+          @Override
+          public String getMethodName() {
+            return name;
+          }
+          @Override
+          public Lane getLane() {
+            return lane != null ? lane : super.getLane();
+          }
+          public void onTransactionStart(SQLTransaction tx) {
+            execNative(tx, sql, args,
+                new StatementCallbackListCallback<JavaScriptObject>(this));
+          }
+        };
+      case ROW_IDS:
+        return new TransactionCallbackRowIdListCallback(
+            (RowIdListCallback) callback) {
+          @Override
+          public String getMethodName() {
+            return name;
+          }
+          @Override
+          public Lane getLane() {
+            return lane != null ? lane : super.getLane();
+          }
+          public void onTransactionStart(SQLTransaction tx) {
+            execNative(tx, sql, args, new StatementCallbackRowIdListCallback(this));
+          }
+        };
+      default:
+        return new TransactionCallbackScalarCallback<Object>(
+            (ScalarCallback<Object>) callback) {
+          @Override
+          public String getMethodName() {
+            return name;
+          }
+          @Override
+          public Lane getLane() {
+            return lane != null ? lane : super.getLane();
+          }
+          public void onTransactionStart(SQLTransaction tx) {
+            execNative(tx, sql, args,
+                new DataServiceStatementCallback<ScalarRow<Object>>() {
+                  public void onSuccess(SQLTransaction transaction,
+                      SQLResultSet<ScalarRow<Object>> resultSet) {
+                    storeValue(getValue(resultSet.getRows().getItem(0)));
+                  }
+                  protected void storeError(int code, String message) {
+                    storeStatementError(code, message);
+                  }
+                });
+          }
+        };
+    }
+  }
+
+  /**
+   * Returns the scalar value of the specified row, as the type represented by
+   * the {@link #getResultKind() result kind}.
+   */
+  private Object getValue(ScalarRow<?> row) {
+    switch (resultKind) {
+      case BYTE:
+        return row.getByte();
+      case SHORT:
+        return row.getShort();
+      case INTEGER:
+        return row.getInteger();
+      case FLOAT:
+        return row.getFloat();
+      case DOUBLE:
+        return row.getDouble();
+      case BOOLEAN:
+        return row.getBoolean();
+      default:
+        return row.getString();
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.SQLError;
+
+/**
+ * Decides whether, and when, a failed transaction is executed once more.
+ * 
+ * @see com.google.code.gwt.database.client.service.Retry
+ * 
+ * @author bguijt
+ */
+public class RetryPolicy {
+
+  private int[] codes;
+  private int maxAttempts;
+  private int delay;
+  private int maxDelay;
+
+  /**
+   * Creates a RetryPolicy.
+   * 
+   * @param codes the {@link SQLError} codes to retry a transaction for
+   * @param maxAttempts the maximum number of attempts, including the first one
+   * @param delay the number of milliseconds to wait before the first retry
+   * @param maxDelay the maximum number of milliseconds to wait before a retry
+   */
+  public RetryPolicy(int[] codes, int maxAttempts, int delay, int maxDelay) {
+    this.codes = codes;
+    this.maxAttempts = maxAttempts;
+    this.delay = delay;
+    this.maxDelay = maxDelay;
+  }
+
+  /**
+   * Returns <code>true</code> if a transaction which failed with the specified
+   * error code after the specified number of attempts should be retried.
+   */
+  public boolean isRetryable(int code, int attempts) {
+    if (attempts >= maxAttempts) {
+      return false;
+    }
+    for (int c : codes) {
+      if (c == code) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of milliseconds to wait before the retry following the
+   * specified number of attempts. The delay doubles with each attempt, of
+   * which a random half is taken off.
+   */
+  public int getDelay(int attempts) {
+    double backoff = Math.min(maxDelay, delay * Math.pow(2, attempts - 1));
+    return (int) (backoff / 2 + Math.random() * backoff / 2);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.Database;
+import com.google.code.gwt.database.client.service.DataService;
+
+/**
+ * Base class for all generated {@link DataService} implementations annotated
+ * with {@link com.google.code.gwt.database.client.service.Shards}.
+ * 
+ * <p>
+ * Each shard is a regular generated DataService on a Database of its own. This
+ * class routes the calls to them.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public abstract class ShardedDataService implements DataService {
+
+  private BaseDataService[] shards;
+
+  /**
+   * Creates a sharded DataService using the specified DataServices as shards.
+   */
+  protected ShardedDataService(BaseDataService[] shards) {
+    this.shards = shards;
+    for (int i = 0; i < shards.length; i++) {
+      shards[i].setShardIndex(i);
+    }
+  }
+
+  /**
+   * Returns the number of shards.
+   */
+  public final int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * Returns the DataService of the specified shard, e.g. to configure it or
+   * to inspect its statistics.
+   */
+  public final BaseDataService getShard(int index) {
+    return shards[index];
+  }
+
+  /**
+   * Returns the index of the shard the specified key belongs to.
+   * 
+   * <p>
+   * The index is derived from a hash of the key which doesn't depend on the
+   * GWT version: the JDK hashCode of a String or an integral number, and the
+   * JDK hashCode of the <code>double</code> value of a floating point number.
+   * </p>
+   */
+  public final int getShardIndex(Object key) {
+    if (key == null) {
+      return 0;
+    }
+    int index = hash(key) % shards.length;
+    return index < 0 ? index + shards.length : index;
+  }
+
+  private static int hash(Object key) {
+    if (key instanceof Long) {
+      // The emulated Long.hashCode() is not the one of the JDK:
+      long value = (Long) key;
+      return (int) (value ^ (value >>> 32));
+    } else if (key instanceof Double || key instanceof Float) {
+      // The JDK Double.hashCode(), also for Float keys:
+      long bits = Double.doubleToLongBits(((Number) key).doubleValue());
+      return (int) (bits ^ (bits >>> 32));
+    } else if (key instanceof Number) {
+      return ((Number) key).intValue();
+    }
+    return key.hashCode();
+  }
+
+  /**
+   * Returns the Database of the first shard.
+   */
+  public final Database getDatabase() {
+    return shards[0].getDatabase();
+  }
+}
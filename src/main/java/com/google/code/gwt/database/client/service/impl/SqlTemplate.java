@@ -0,0 +1,229 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.code.gwt.database.rebind.DataServiceGenerator;
+
+/**
+ * Represents a SQL statement with collection or array parameters, e.g.
+ * <code>SELECT * FROM t WHERE id IN ({ids})</code>, whose SQL text depends on
+ * the number of items of these parameters.
+ * 
+ * <p>
+ * The {@link DataServiceGenerator} creates one SqlTemplate per service method
+ * with such parameters. The template caches the complete SQL text per
+ * combination of sizes, so calling the service method over and over again
+ * with lists of the same size doesn't build the same SQL text again.
+ * </p>
+ * 
+ * <p>
+ * To keep the number of distinct SQL texts small, the size of a parameter
+ * which represents a complete <code>IN (...)</code> list is rounded up to the
+ * next power of two. The parameter values are padded by repeating the last
+ * item (see {@link DataServiceUtils#addParameters(Object[], int, Object[], int)}),
+ * which doesn't change the outcome of either <code>IN</code> or
+ * <code>NOT IN</code>. If the rounded sizes would exceed the SQLite limit of
+ * {@value #MAX_PARAMETERS} parameters per statement, the exact sizes are used
+ * instead. Above the
+ * {@link BaseDataService#getInListThreshold() threshold}, the items of such a
+ * parameter are loaded into a temporary table instead, which the
+ * <code>IN (...)</code> list selects from.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class SqlTemplate {
+
+  /**
+   * The size to specify at {@link #getSql(int)} for a parameter whose items
+   * are loaded into its temporary table - see {@link #getTableName(int)}.
+   */
+  public static final int TEMP_TABLE = -1;
+
+  /**
+   * The maximum number of parameters SQLite binds to a single statement.
+   */
+  public static final int MAX_PARAMETERS = 999;
+
+  /**
+   * The maximum number of SQL texts cached per template. Only parameters which
+   * are not rounded up can exceed this number.
+   */
+  private static final int MAX_CACHED_STATEMENTS = 64;
+
+  private String[] parts;
+  private boolean[] rounded;
+  private int fixedParameters;
+  private Map<Object, String> statements = new HashMap<Object, String>();
+
+  /**
+   * Creates a new template.
+   * 
+   * @param parts the SQL text before, between and after the collection or
+   *          array parameters
+   * @param rounded for each collection or array parameter, whether its size
+   *          is rounded up to the next power of two
+   * @param fixedParameters the number of other parameters of the statement
+   */
+  public SqlTemplate(String[] parts, boolean[] rounded, int fixedParameters) {
+    this.parts = parts;
+    this.rounded = rounded;
+    this.fixedParameters = fixedParameters;
+  }
+
+  /**
+   * Returns, for each collection or array parameter, whether its items are
+   * loaded into a temporary table. Complete <code>IN (...)</code> lists with
+   * more items than the threshold are, and so are the largest remaining ones
+   * as long as the statement would exceed {@value #MAX_PARAMETERS}
+   * parameters.
+   * 
+   * @param counts the number of items of each parameter
+   * @param threshold the number of items above which an <code>IN (...)</code>
+   *          list is always loaded into a temporary table
+   */
+  public boolean[] getTempTables(int[] counts, int threshold) {
+    boolean[] tables = new boolean[counts.length];
+    int total = fixedParameters;
+    for (int i = 0; i < counts.length; i++) {
+      if (rounded[i] && counts[i] > threshold) {
+        tables[i] = true;
+      } else {
+        total += counts[i];
+      }
+    }
+    while (total > MAX_PARAMETERS) {
+      int largest = -1;
+      for (int i = 0; i < counts.length; i++) {
+        if (rounded[i] && !tables[i]
+            && (largest < 0 || counts[i] > counts[largest])) {
+          largest = i;
+        }
+      }
+      if (largest < 0) {
+        // Nothing left to move; let SQLite report the error:
+        break;
+      }
+      tables[largest] = true;
+      total -= counts[largest];
+    }
+    return tables;
+  }
+
+  /**
+   * Returns the number of placeholders to use for each collection or array
+   * parameter.
+   * 
+   * @param counts the number of items of each parameter, or
+   *          {@link #TEMP_TABLE} if its items are loaded into a temporary
+   *          table, in which case its number of placeholders is
+   *          <code>0</code>
+   */
+  public int[] getSizes(int[] counts) {
+    int[] sizes = new int[counts.length];
+    int total = fixedParameters;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != TEMP_TABLE) {
+        sizes[i] = rounded[i] ? roundUp(counts[i]) : counts[i];
+        total += sizes[i];
+      }
+    }
+    if (total > MAX_PARAMETERS) {
+      // The rounded statement cannot be executed, the exact one might:
+      for (int i = 0; i < counts.length; i++) {
+        sizes[i] = Math.max(0, counts[i]);
+      }
+    }
+    return sizes;
+  }
+
+  /**
+   * Returns the next power of two greater than or equal to the specified
+   * size.
+   */
+  private static int roundUp(int size) {
+    int bucket = 1;
+    while (bucket < size) {
+      bucket <<= 1;
+    }
+    return size <= 1 ? size : bucket;
+  }
+
+  /**
+   * Returns the SQL text for a template with one collection or array
+   * parameter, using the specified number of placeholders, or
+   * {@link #TEMP_TABLE}.
+   */
+  public String getSql(int size) {
+    Integer key = size;
+    String sql = statements.get(key);
+    if (sql == null) {
+      sql = cache(key, new int[] {size});
+    }
+    return sql;
+  }
+
+  /**
+   * Returns the SQL text using the specified number of placeholders, or
+   * {@link #TEMP_TABLE}, for each collection or array parameter.
+   */
+  public String getSql(int[] sizes) {
+    if (sizes.length == 1) {
+      return getSql(sizes[0]);
+    }
+    StringBuilder key = new StringBuilder();
+    for (int size : sizes) {
+      key.append(size).append(',');
+    }
+    String sql = statements.get(key.toString());
+    if (sql == null) {
+      sql = cache(key.toString(), sizes);
+    }
+    return sql;
+  }
+
+  /**
+   * Returns the name of the temporary table to load the items of the
+   * specified parameter into, if it has too many items to bind each of them.
+   * The table is dropped right after the statement is executed, so the name
+   * is the same for every statement.
+   */
+  public String getTableName(int index) {
+    return "gwtdb_in_" + index;
+  }
+
+  private String cache(Object key, int[] sizes) {
+    StringBuilder sql = new StringBuilder(parts[0]);
+    for (int i = 0; i < sizes.length; i++) {
+      if (sizes[i] == TEMP_TABLE) {
+        sql.append("SELECT v FROM ").append(getTableName(i));
+      } else {
+        sql.append(DataServiceUtils.getPlaceholders(sizes[i]));
+      }
+      sql.append(parts[i + 1]);
+    }
+    String result = sql.toString();
+    if (statements.size() < MAX_CACHED_STATEMENTS) {
+      statements.put(key, result);
+    }
+    return result;
+  }
+}
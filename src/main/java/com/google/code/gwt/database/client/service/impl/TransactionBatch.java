@@ -0,0 +1,175 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.Lane;
+import com.google.code.gwt.database.client.service.callback.DataServiceTransactionCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.GWT.UncaughtExceptionHandler;
+
+/**
+ * Executes the transactions of several DataService calls in one single
+ * transaction.
+ * 
+ * <p>
+ * Each {@link DataServiceTransactionCallback} in the batch still receives its
+ * own success or failure callback. When the shared transaction fails, each of
+ * them is executed once more in a transaction of its own, so only the calls
+ * which actually fail are reported as failed.
+ * </p>
+ * 
+ * <p>
+ * If a transaction in the batch throws an exception while its SQL statements
+ * are executed, the exception is reported to the
+ * {@link UncaughtExceptionHandler}, and that transaction is reported as failed
+ * once the shared transaction has ended, instead of as succeeded.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class TransactionBatch implements TransactionCallback {
+
+  private TransactionScheduler scheduler;
+  private boolean readOnly;
+  private List<DataServiceTransactionCallback<?>> txCallbacks = new ArrayList<DataServiceTransactionCallback<?>>();
+  private List<Lane> lanes = new ArrayList<Lane>();
+  private List<RuntimeException> exceptions = new ArrayList<RuntimeException>();
+  private Lane lane;
+
+  /**
+   * Creates an empty batch of transactions to schedule with the specified
+   * scheduler.
+   * 
+   * @param readOnly <code>true</code> to execute the batch in a read-only
+   *          transaction
+   */
+  public TransactionBatch(TransactionScheduler scheduler, boolean readOnly) {
+    this.scheduler = scheduler;
+    this.readOnly = readOnly;
+  }
+
+  /**
+   * Adds the specified transaction to this batch. The batch is scheduled in
+   * the highest priority lane of the transactions in it.
+   */
+  public void add(DataServiceTransactionCallback<?> txCallback, Lane lane) {
+    txCallbacks.add(txCallback);
+    lanes.add(lane);
+    exceptions.add(null);
+    if (this.lane == null || lane.compareTo(this.lane) < 0) {
+      this.lane = lane;
+    }
+  }
+
+  /**
+   * Returns the number of transactions in this batch.
+   */
+  public int size() {
+    return txCallbacks.size();
+  }
+
+  /**
+   * Starts the shared transaction for all transactions in this batch.
+   */
+  public void execute() {
+    if (txCallbacks.size() == 1) {
+      // No need to share anything:
+      execute(txCallbacks.get(0), lane);
+    } else if (txCallbacks.size() > 1) {
+      execute(this, lane);
+    }
+  }
+
+  private void execute(TransactionCallback callback, Lane lane) {
+    if (readOnly) {
+      scheduler.readTransaction(callback, lane);
+    } else {
+      scheduler.transaction(callback, lane);
+    }
+  }
+
+  /**
+   * Executes the SQL statements of all transactions in this batch.
+   */
+  public void onTransactionStart(SQLTransaction transaction) {
+    for (int i = 0; i < txCallbacks.size(); i++) {
+      try {
+        txCallbacks.get(i).onTransactionStart(transaction);
+      } catch (RuntimeException e) {
+        // Without an UncaughtExceptionHandler, the exception is rethrown and
+        // rolls back the shared transaction:
+        exceptions.set(i, e);
+        handleException(e);
+      }
+    }
+  }
+
+  /**
+   * Invokes the success callback of all transactions in this batch, except
+   * for the transactions which threw an exception while executing their SQL
+   * statements: their failure callback is invoked instead.
+   */
+  public void onTransactionSuccess() {
+    for (int i = 0; i < txCallbacks.size(); i++) {
+      DataServiceTransactionCallback<?> txCallback = txCallbacks.get(i);
+      RuntimeException exception = exceptions.get(i);
+      try {
+        if (exception == null) {
+          txCallback.onTransactionSuccess();
+        } else {
+          txCallback.fail(new DataServiceException(
+              "Unable to execute the SQL statements of "
+                  + txCallback.getMethodName() + ": " + exception.getMessage()));
+        }
+      } catch (RuntimeException e) {
+        handleException(e);
+      }
+    }
+  }
+
+  /**
+   * Executes each transaction in this batch once more, in a transaction of its
+   * own, to find out which of them causes the failure.
+   */
+  public void onTransactionFailure(SQLError error) {
+    for (int i = 0; i < txCallbacks.size(); i++) {
+      exceptions.set(i, null);
+      txCallbacks.get(i).reset();
+      execute(txCallbacks.get(i), lanes.get(i));
+    }
+  }
+
+  /**
+   * Makes sure an exception thrown by one transaction doesn't affect the other
+   * transactions in this batch, if an {@link UncaughtExceptionHandler} is
+   * available.
+   */
+  private void handleException(RuntimeException e) {
+    UncaughtExceptionHandler ueh = GWT.getUncaughtExceptionHandler();
+    if (ueh == null) {
+      throw e;
+    }
+    ueh.onUncaughtException(e);
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.Database;
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.code.gwt.database.client.service.Lane;
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+
+/**
+ * Schedules the transactions on a {@link Database} in priority {@link Lane
+ * lanes}.
+ * 
+ * <p>
+ * The Database itself executes transactions in the order they are started.
+ * This scheduler keeps the transactions in a queue per lane instead, and only
+ * hands them over to the Database when fewer than
+ * {@link #setMaxActive(int) maxActive} transactions are active. The next
+ * transaction is always taken from the highest priority lane. Before a
+ * {@link Lane#BACKGROUND background} transaction is started, the scheduler
+ * yields to the event loop so that interactive work can be queued first.
+ * </p>
+ * 
+ * <p>
+ * By default the number of active transactions is not limited: each
+ * transaction is handed over to the Database right away, as if there were no
+ * scheduler. To have the lanes determine the order of execution, limit the
+ * number of active transactions explicitly, e.g. with
+ * <code>setMaxActive(1)</code> to run them one at a time.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class TransactionScheduler {
+
+  private static final int LANES = Lane.values().length;
+
+  private Database database;
+  private int maxActive = Integer.MAX_VALUE;
+  private int active = 0;
+  private boolean dispatchScheduled = false;
+
+  private List<LinkedList<Entry>> queues = new ArrayList<LinkedList<Entry>>();
+
+  // Statistics per lane:
+  private int[] startedCounts = new int[LANES];
+  private double[] totalWaitTimes = new double[LANES];
+  private double[] maxWaitTimes = new double[LANES];
+
+  /**
+   * Represents a queued transaction, and relays the Database callbacks to the
+   * actual TransactionCallback.
+   */
+  private class Entry implements TransactionCallback {
+    private TransactionCallback callback;
+    private Lane lane;
+    private boolean readOnly;
+    private double queuedAt = Duration.currentTimeMillis();
+
+    Entry(TransactionCallback callback, Lane lane, boolean readOnly) {
+      this.callback = callback;
+      this.lane = lane;
+      this.readOnly = readOnly;
+    }
+
+    public void onTransactionStart(SQLTransaction transaction) {
+      callback.onTransactionStart(transaction);
+    }
+
+    public void onTransactionSuccess() {
+      try {
+        callback.onTransactionSuccess();
+      } finally {
+        completed();
+      }
+    }
+
+    public void onTransactionFailure(SQLError error) {
+      try {
+        callback.onTransactionFailure(error);
+      } finally {
+        completed();
+      }
+    }
+  }
+
+  /**
+   * Creates a scheduler for the transactions on the specified Database.
+   */
+  public TransactionScheduler(Database database) {
+    this.database = database;
+    for (int i = 0; i < LANES; i++) {
+      queues.add(new LinkedList<Entry>());
+    }
+  }
+
+  /**
+   * Sets the maximum number of transactions handed over to the Database at
+   * the same time. The default is unlimited; <code>1</code> gives the lanes
+   * the most control over the order of execution.
+   */
+  public void setMaxActive(int maxActive) {
+    this.maxActive = Math.max(1, maxActive);
+    dispatch();
+  }
+
+  /**
+   * Schedules a transaction in read/write mode in the specified lane.
+   */
+  public void transaction(TransactionCallback callback, Lane lane) {
+    queues.get(lane.ordinal()).add(new Entry(callback, lane, false));
+    dispatch();
+  }
+
+  /**
+   * Schedules a transaction in read-only mode in the specified lane.
+   */
+  public void readTransaction(TransactionCallback callback, Lane lane) {
+    queues.get(lane.ordinal()).add(new Entry(callback, lane, true));
+    dispatch();
+  }
+
+  /**
+   * Returns the number of transactions waiting in the specified lane.
+   */
+  public int getQueueDepth(Lane lane) {
+    return queues.get(lane.ordinal()).size();
+  }
+
+  /**
+   * Returns the number of transactions currently handed over to the Database.
+   */
+  public int getActiveCount() {
+    return active;
+  }
+
+  /**
+   * Returns the number of transactions started from the specified lane.
+   */
+  public int getStartedCount(Lane lane) {
+    return startedCounts[lane.ordinal()];
+  }
+
+  /**
+   * Returns the total number of milliseconds the transactions started from the
+   * specified lane have waited in the queue.
+   */
+  public double getTotalWaitTime(Lane lane) {
+    return totalWaitTimes[lane.ordinal()];
+  }
+
+  /**
+   * Returns the longest number of milliseconds a transaction started from the
+   * specified lane has waited in the queue.
+   */
+  public double getMaxWaitTime(Lane lane) {
+    return maxWaitTimes[lane.ordinal()];
+  }
+
+  /**
+   * Starts queued transactions until the maximum number of active
+   * transactions is reached.
+   */
+  private void dispatch() {
+    while (active < maxActive) {
+      Entry entry = poll();
+      if (entry == null) {
+        return;
+      }
+      start(entry);
+    }
+  }
+
+  private void start(Entry entry) {
+    int lane = entry.lane.ordinal();
+    double waitTime = Duration.currentTimeMillis() - entry.queuedAt;
+    startedCounts[lane]++;
+    totalWaitTimes[lane] += waitTime;
+    maxWaitTimes[lane] = Math.max(maxWaitTimes[lane], waitTime);
+
+    active++;
+    try {
+      if (entry.readOnly) {
+        database.readTransaction(entry);
+      } else {
+        database.transaction(entry);
+      }
+    } catch (RuntimeException e) {
+      active--;
+      throw e;
+    }
+  }
+
+  /**
+   * Called when a transaction has completed. Starts the next transaction, or
+   * yields to the event loop first if the next one is a background
+   * transaction.
+   */
+  private void completed() {
+    active--;
+    Entry next = peek();
+    if (next != null && next.lane == Lane.BACKGROUND) {
+      if (!dispatchScheduled) {
+        dispatchScheduled = true;
+        Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+          public void execute() {
+            dispatchScheduled = false;
+            dispatch();
+          }
+        });
+      }
+    } else {
+      dispatch();
+    }
+  }
+
+  private Entry peek() {
+    for (LinkedList<Entry> queue : queues) {
+      if (!queue.isEmpty()) {
+        return queue.getFirst();
+      }
+    }
+    return null;
+  }
+
+  private Entry poll() {
+    for (LinkedList<Entry> queue : queues) {
+      if (!queue.isEmpty()) {
+        return queue.removeFirst();
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.rebind;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.service.CallHandle;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.RunAsync;
+import com.google.code.gwt.database.client.service.impl.AsyncDataService;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.RunAsyncCallback;
+import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.JPackage;
+import com.google.gwt.core.ext.typeinfo.JParameter;
+import com.google.gwt.core.ext.typeinfo.JType;
+import com.google.gwt.user.rebind.ClassSourceFileComposerFactory;
+import com.google.gwt.user.rebind.SourceWriter;
+
+/**
+ * Helper class for the {@link DataServiceGenerator}.
+ * 
+ * <p>
+ * This class is specifically instantiated for a single DataService annotated
+ * with {@link RunAsync}. It generates the class which loads the DataService
+ * proxy generated by the {@link SqlProxyCreator} (or
+ * {@link ShardedProxyCreator}) at a <code>GWT.runAsync()</code> split point,
+ * and forwards the calls to it.
+ * </p>
+ * 
+ * <p>
+ * The split point is the only place referring to the constructor of the
+ * actual proxy, so the GWT compiler moves the proxy, its SQL statements and
+ * its callback classes to the code fragment of the split point.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class AsyncProxyCreator {
+
+  private static final String PROXY_SUFFIX = "_AsyncProxy";
+
+  private static final String[] IMPORTED_CLASSES = new String[] {
+      AsyncDataService.class.getCanonicalName(),
+      CallHandle.class.getCanonicalName(), GWT.class.getCanonicalName(),
+      RunAsyncCallback.class.getCanonicalName(),
+      DataService.class.getCanonicalName()};
+
+  private TreeLogger logger;
+  private GeneratorContext context;
+  private GeneratorUtils genUtils;
+  private JClassType dataService;
+  private SourceWriter sw;
+
+  public AsyncProxyCreator(TreeLogger logger, GeneratorContext context,
+      JClassType dataService) {
+    this.logger = logger;
+    this.context = context;
+    this.dataService = dataService;
+    this.genUtils = new GeneratorUtils(logger, context, IMPORTED_CLASSES);
+  }
+
+  /**
+   * Generates the loading class.
+   * 
+   * @param proxyName the qualified name of the generated DataService proxy to
+   *          load
+   */
+  public String create(String proxyName) throws UnableToCompleteException {
+    sw = getSourceWriter();
+    if (sw == null) {
+      // No need to generate, it's already done. Return name of generated class.
+      return getProxyQualifiedName();
+    }
+
+    generateProxyLoadMethod(genUtils.shortenName(proxyName));
+
+    List<JMethod> services = new ArrayList<JMethod>();
+    for (JMethod method : dataService.getOverridableMethods()) {
+      if (!GeneratorUtils.isType(method.getEnclosingType(), DataService.class)) {
+        generateProxyServiceMethod(method, services.size());
+        services.add(method);
+      }
+    }
+    generateProxyInvokeMethod(services);
+
+    sw.commit(logger);
+
+    return getProxyQualifiedName();
+  }
+
+  /**
+   * Generates the load() method, which is the split point of the DataService.
+   */
+  private void generateProxyLoadMethod(String proxyName) {
+    String callbackName = genUtils.getClassName(RunAsyncCallback.class);
+    sw.println("protected void load() {");
+    sw.indent();
+    sw.println(genUtils.getClassName(GWT.class) + ".runAsync("
+        + genUtils.getClassName(dataService) + ".class, new " + callbackName
+        + "() {");
+    sw.indent();
+    sw.println("public void onSuccess() {");
+    sw.indentln("onLoad(new " + proxyName + "());");
+    sw.println("}");
+    sw.println("public void onFailure(Throwable reason) {");
+    sw.indentln("onLoadFailure(reason);");
+    sw.println("}");
+    sw.outdent();
+    sw.println("});");
+    sw.outdent();
+    sw.println("}");
+  }
+
+  /**
+   * Generates the method handing over the specified service method call to
+   * {@link AsyncDataService#run(int, Object[])}.
+   * 
+   * @param index the index identifying the service method at
+   *          {@link #generateProxyInvokeMethod(List)}
+   */
+  private void generateProxyServiceMethod(JMethod service, int index)
+      throws UnableToCompleteException {
+    if (GeneratorUtils.isType(service.getReturnType(), CallHandle.class)) {
+      logger.log(TreeLogger.ERROR, "Method " + service.getName()
+          + " is called once the DataService is loaded, so it cannot return a "
+          + genUtils.getClassName(CallHandle.class)
+          + ". Use a CallHandle parameter instead");
+      throw new UnableToCompleteException();
+    }
+    JParameter[] params = service.getParameters();
+
+    sw.beginJavaDocComment();
+    sw.print("Executes the call once the DataService is loaded.");
+    sw.endJavaDocComment();
+    sw.print("public final void " + service.getName() + "(");
+    StringBuilder args = new StringBuilder();
+    for (int i = 0; i < params.length; i++) {
+      if (i > 0) {
+        sw.print(", ");
+        args.append(", ");
+      }
+      sw.print(genUtils.getClassName(params[i].getType()) + " "
+          + params[i].getName());
+      args.append(params[i].getName());
+    }
+    sw.println(") {");
+    sw.indentln("run(" + index + ", new Object[] {" + args + "});");
+    sw.println("}");
+  }
+
+  /**
+   * Generates the invoke() method, which calls the service method identified
+   * by its index on the loaded DataService.
+   */
+  private void generateProxyInvokeMethod(List<JMethod> services) {
+    String serviceVarName = "service";
+    String argsVarName = "args";
+    sw.println();
+    sw.println("@SuppressWarnings(\"unchecked\")");
+    sw.println("protected void invoke("
+        + genUtils.getClassName(DataService.class) + " " + serviceVarName
+        + ", int method, Object[] " + argsVarName + ") {");
+    sw.indent();
+    sw.println("switch (method) {");
+    for (int i = 0; i < services.size(); i++) {
+      JMethod service = services.get(i);
+      JParameter[] params = service.getParameters();
+      StringBuilder args = new StringBuilder();
+      for (int j = 0; j < params.length; j++) {
+        if (j > 0) {
+          args.append(", ");
+        }
+        JType type = params[j].getType();
+        String typeName = type.isPrimitive() != null
+            ? type.isPrimitive().getQualifiedBoxedSourceName()
+            : genUtils.getClassName(type);
+        args.append("(" + genUtils.shortenName(typeName) + ") " + argsVarName
+            + "[" + j + "]");
+      }
+      sw.indentln("case " + i + ":");
+      sw.indent();
+      sw.indentln("((" + genUtils.getClassName(dataService) + ") "
+          + serviceVarName + ")." + service.getName() + "(" + args + ");");
+      sw.indentln("break;");
+      sw.outdent();
+    }
+    sw.println("}");
+    sw.outdent();
+    sw.println("}");
+  }
+
+  /**
+   * Returns a SourceWriter which is prepared to write the class' body.
+   */
+  private SourceWriter getSourceWriter() {
+    JPackage serviceIntfPkg = dataService.getPackage();
+    String packageName = serviceIntfPkg == null ? "" : serviceIntfPkg.getName();
+    PrintWriter printWriter = context.tryCreate(logger, packageName,
+        getProxySimpleName());
+
+    if (printWriter == null) {
+      // Proxy already exists.
+      return null;
+    }
+
+    ClassSourceFileComposerFactory composerFactory = new ClassSourceFileComposerFactory(
+        packageName, getProxySimpleName());
+
+    for (String imp : IMPORTED_CLASSES) {
+      composerFactory.addImport(imp);
+    }
+
+    composerFactory.setSuperclass(genUtils.getClassName(AsyncDataService.class));
+    composerFactory.addImplementedInterface(genUtils.getClassName(dataService));
+
+    composerFactory.setJavaDocCommentForClass("Generated by {@link "
+        + genUtils.getClassName(getClass()) + "}");
+
+    return composerFactory.createSourceWriter(context, printWriter);
+  }
+
+  /**
+   * Returns the fully qualified name of the generated class.
+   */
+  private String getProxyQualifiedName() {
+    return (dataService.getPackage() == null ? ""
+        : dataService.getPackage().getName() + ".")
+        + getProxySimpleName();
+  }
+
+  /**
+   * Returns the name of the generated class.
+   */
+  private String getProxySimpleName() {
+    return dataService.getName().replace('.', '_') + PROXY_SUFFIX;
+  }
+}
@@ -17,14 +17,34 @@
 package com.google.code.gwt.database.rebind;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import com.google.code.gwt.database.client.service.Connection;
 import com.google.code.gwt.database.client.service.DataService;
-import com.google.gwt.core.ext.Generator;
+import com.google.code.gwt.database.client.service.RowType;
+import com.google.code.gwt.database.client.service.RunAsync;
+import com.google.code.gwt.database.client.service.Shards;
+import com.google.gwt.core.ext.CachedGeneratorResult;
 import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.IncrementalGenerator;
+import com.google.gwt.core.ext.RebindMode;
+import com.google.gwt.core.ext.RebindResult;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.HasAnnotations;
 import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JField;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.JParameter;
+import com.google.gwt.core.ext.typeinfo.JType;
 import com.google.gwt.core.ext.typeinfo.TypeOracle;
 
 /**
@@ -46,15 +66,56 @@ import com.google.gwt.core.ext.typeinfo.TypeOracle;
  * Generator.
  * </p>
  * 
+ * <p>
+ * The Generator is incremental: it records a signature of each DataService
+ * (its methods, parameters and annotations, including those of the
+ * interfaces it extends, and the fields of the {@link RowType row types} it
+ * uses) with the generated proxy. When the signature is
+ * unchanged in a later compile, e.g. a Super Dev Mode refresh, the cached
+ * proxy is reused instead of being generated again.
+ * </p>
+ * 
+ * <p>
+ * Within a single compile the Generator is invoked once for every permutation
+ * (e.g. for each <code>user.agent</code>), while the generated proxy doesn't
+ * depend on any deferred binding property. The proxies generated for the
+ * first permutation are therefore used as-is for the other permutations.
+ * </p>
+ * 
  * @see DataService
  * 
  * @author bguijt
  */
-public class DataServiceGenerator extends Generator {
+public class DataServiceGenerator extends IncrementalGenerator {
+
+  /**
+   * The version of the generated code. Increase this number whenever the
+   * Generator output changes, so that proxies cached by a previous version
+   * are not reused.
+   */
+  private static final long VERSION_ID = 2L;
+
+  /**
+   * The key of the DataService signature in the cached generator result.
+   */
+  private static final String SIGNATURE_KEY = "signature";
+
+  /**
+   * The names of the proxies generated per DataService signature, per compile.
+   * A compile is identified by its GeneratorContext, which is shared by all
+   * permutations.
+   */
+  private static final Map<GeneratorContext, Map<String, String>> GENERATED_PROXIES = new WeakHashMap<GeneratorContext, Map<String, String>>();
 
   @Override
-  public String generate(TreeLogger logger, GeneratorContext context,
-      String requestedClass) throws UnableToCompleteException {
+  public long getVersionId() {
+    return VERSION_ID;
+  }
+
+  @Override
+  public RebindResult generateIncrementally(TreeLogger logger,
+      GeneratorContext context, String requestedClass)
+      throws UnableToCompleteException {
 
     // Assertions:
 
@@ -82,12 +143,190 @@ public class DataServiceGenerator extends Generator {
       throw new UnableToCompleteException();
     }
 
-    // All basic assertions checked: Generate the code!
+    // All basic assertions checked: Reuse the cached proxy if the
+    // DataService didn't change since it was generated:
+    String signature = getSignature(dataService);
+    CachedGeneratorResult cached = context.getCachedGeneratorResult();
+    if (cached != null && context.isGeneratorResultCachingEnabled()
+        && signature.equals(cached.getClientData(SIGNATURE_KEY))) {
+      logger.log(TreeLogger.DEBUG, "Reusing cached proxy for "
+          + dataService.getQualifiedSourceName());
+      return new RebindResult(RebindMode.USE_ALL_CACHED,
+          cached.getResultTypeName());
+    }
+
+    // Reuse the proxy generated for a previous permutation of this compile:
+    String proxyName = getGeneratedProxy(context, signature);
+    if (proxyName != null) {
+      logger.log(TreeLogger.DEBUG, "Reusing proxy " + proxyName
+          + " generated for a previous permutation");
+      return new RebindResult(RebindMode.USE_EXISTING, proxyName);
+    }
+
+    // Generate the code!
+    proxyName = generate(logger, context, dataService, conAnnotation);
+    putGeneratedProxy(context, signature, proxyName);
+    RebindResult result = new RebindResult(RebindMode.USE_ALL_NEW, proxyName);
+    result.putClientData(SIGNATURE_KEY, signature);
+    return result;
+  }
+
+  /**
+   * Returns the name of the proxy generated earlier in this compile for a
+   * DataService with the specified signature, or <code>null</code> if no such
+   * proxy was generated.
+   */
+  private static String getGeneratedProxy(GeneratorContext context,
+      String signature) {
+    synchronized (GENERATED_PROXIES) {
+      Map<String, String> proxies = GENERATED_PROXIES.get(context);
+      return proxies != null ? proxies.get(signature) : null;
+    }
+  }
+
+  private static void putGeneratedProxy(GeneratorContext context,
+      String signature, String proxyName) {
+    synchronized (GENERATED_PROXIES) {
+      Map<String, String> proxies = GENERATED_PROXIES.get(context);
+      if (proxies == null) {
+        proxies = new HashMap<String, String>();
+        GENERATED_PROXIES.put(context, proxies);
+      }
+      proxies.put(signature, proxyName);
+    }
+  }
 
+  /**
+   * Generates the proxy of the specified DataService, and returns its fully
+   * qualified name.
+   */
+  private String generate(TreeLogger logger, GeneratorContext context,
+      JClassType dataService, Connection conAnnotation)
+      throws UnableToCompleteException {
     SqlProxyCreator creator = new SqlProxyCreator(logger.branch(
         TreeLogger.DEBUG, "Generating proxy methods to database '"
             + conAnnotation.name() + "'..."), context, dataService);
-    return creator.create();
+    String proxyName = creator.create();
+
+    Shards shards = getAnnotation(dataService, Shards.class);
+    if (shards != null) {
+      if (getAnnotatedType(dataService, Connection.class).getAnnotation(
+          Shards.class) == null) {
+        logger.log(TreeLogger.ERROR,
+            "@Shards must be placed on the DataService interface annotated with @Connection");
+        throw new UnableToCompleteException();
+      }
+      ShardedProxyCreator shardedCreator = new ShardedProxyCreator(
+          logger.branch(TreeLogger.DEBUG, "Generating proxy methods to "
+              + shards.value() + " shards of database '"
+              + conAnnotation.name() + "'..."), context, dataService,
+          shards.value());
+      proxyName = shardedCreator.create(proxyName);
+    }
+
+    if (dataService.getAnnotation(RunAsync.class) != null) {
+      AsyncProxyCreator asyncCreator = new AsyncProxyCreator(logger.branch(
+          TreeLogger.DEBUG, "Generating proxy methods loading "
+              + dataService.getQualifiedSourceName() + " on first use..."),
+          context, dataService);
+      proxyName = asyncCreator.create(proxyName);
+    }
+    return proxyName;
+  }
+
+  /**
+   * Returns a description of everything in the specified DataService, and the
+   * interfaces it extends, which determines the generated proxy.
+   */
+  private String getSignature(JClassType dataService) {
+    StringBuilder signature = new StringBuilder();
+    appendSignature(signature, dataService);
+    return signature.toString();
+  }
+
+  private void appendSignature(StringBuilder signature, JClassType type) {
+    signature.append(type.getParameterizedQualifiedSourceName());
+    appendAnnotations(signature, type);
+    signature.append(" {\n");
+    // Methods are not guaranteed to be reported in a stable order:
+    List<String> methods = new ArrayList<String>();
+    for (JMethod method : type.getMethods()) {
+      StringBuilder sb = new StringBuilder();
+      appendAnnotations(sb, method);
+      sb.append(method.getReturnType().getParameterizedQualifiedSourceName());
+      sb.append(' ').append(method.getName()).append('(');
+      for (JParameter param : method.getParameters()) {
+        appendAnnotations(sb, param);
+        sb.append(param.getType().getParameterizedQualifiedSourceName());
+        sb.append(' ').append(param.getName()).append(", ");
+        appendRowTypes(sb, param.getType());
+      }
+      methods.add(sb.append(")\n").toString());
+    }
+    Collections.sort(methods);
+    for (String method : methods) {
+      signature.append(method);
+    }
+    signature.append("}\n");
+    for (JClassType implemented : type.getImplementedInterfaces()) {
+      appendSignature(signature, implemented);
+    }
+  }
+
+  /**
+   * Appends the mapped fields of the {@link RowType row types} used as type
+   * argument of the specified (callback) type, as these determine the
+   * generated row mappers.
+   */
+  private void appendRowTypes(StringBuilder signature, JType type) {
+    if (type.isParameterized() == null) {
+      return;
+    }
+    for (JClassType typeArg : type.isParameterized().getTypeArgs()) {
+      if (typeArg.getAnnotation(RowType.class) != null) {
+        signature.append(typeArg.getQualifiedSourceName()).append(" {");
+        for (JField field : RowMapperCreator.getMappedFields(typeArg)) {
+          appendAnnotations(signature, field);
+          signature.append(field.getType().getQualifiedSourceName());
+          signature.append(' ').append(field.getName()).append(", ");
+        }
+        signature.append("}, ");
+      }
+    }
+  }
+
+  /**
+   * Appends the annotations of the specified element, including the values
+   * of their attributes, in a stable order.
+   */
+  private void appendAnnotations(StringBuilder signature,
+      HasAnnotations element) {
+    List<String> annotations = new ArrayList<String>();
+    for (Annotation annotation : element.getAnnotations()) {
+      StringBuilder sb = new StringBuilder("@");
+      sb.append(annotation.annotationType().getName()).append('(');
+      Method[] attributes = annotation.annotationType().getDeclaredMethods();
+      Arrays.sort(attributes, new Comparator<Method>() {
+        public int compare(Method m1, Method m2) {
+          return m1.getName().compareTo(m2.getName());
+        }
+      });
+      for (Method attribute : attributes) {
+        Object value;
+        try {
+          value = attribute.invoke(annotation);
+        } catch (Exception e) {
+          value = e;
+        }
+        sb.append(attribute.getName()).append('=');
+        sb.append(Arrays.deepToString(new Object[] {value})).append(", ");
+      }
+      annotations.add(sb.append(") ").toString());
+    }
+    Collections.sort(annotations);
+    for (String annotation : annotations) {
+      signature.append(annotation);
+    }
   }
 
   /**
@@ -95,13 +334,22 @@ public class DataServiceGenerator extends Generator {
    * type.
    */
   private <T extends Annotation> T getAnnotation(JClassType type, Class<T> clazz) {
-    T a = type.getAnnotation(clazz);
-    if (a != null) {
-      return a;
+    JClassType annotatedType = getAnnotatedType(type, clazz);
+    return annotatedType != null ? annotatedType.getAnnotation(clazz) : null;
+  }
+
+  /**
+   * Finds the type in the inheritance tree of the specified type which is
+   * annotated with the specified annotation.
+   */
+  private JClassType getAnnotatedType(JClassType type,
+      Class<? extends Annotation> clazz) {
+    if (type.getAnnotation(clazz) != null) {
+      return type;
     }
     JClassType[] implemented = type.getImplementedInterfaces();
     if (implemented != null && implemented.length > 0) {
-      return getAnnotation(implemented[0], clazz);
+      return getAnnotatedType(implemented[0], clazz);
     }
     return null;
   }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.rebind;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.google.code.gwt.database.client.service.Column;
+import com.google.code.gwt.database.client.service.RowType;
+import com.google.code.gwt.database.client.service.callback.list.RowMapper;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.UnsafeNativeLong;
+import com.google.gwt.core.ext.Generator;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JField;
+import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
+import com.google.gwt.core.ext.typeinfo.JType;
+import com.google.gwt.user.rebind.SourceWriter;
+
+/**
+ * Generates the {@link RowMapper} of a {@link RowType} as a nested class of a
+ * DataService proxy.
+ * 
+ * <p>
+ * The mapper consists of a single native method, which creates an object for
+ * each row and assigns each column directly to its field.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class RowMapperCreator {
+
+  private static final String MAPPER_SUFFIX = "_RowMapper";
+
+  private TreeLogger logger;
+  private GeneratorUtils genUtils;
+  private SourceWriter sw;
+
+  public RowMapperCreator(TreeLogger logger, GeneratorUtils genUtils,
+      SourceWriter sw) {
+    this.logger = logger;
+    this.genUtils = genUtils;
+    this.sw = sw;
+  }
+
+  /**
+   * Returns the simple name of the nested class mapping the rows of the
+   * specified rowType.
+   */
+  public static String getMapperName(JClassType rowType) {
+    return rowType.getQualifiedSourceName().replace('.', '_') + MAPPER_SUFFIX;
+  }
+
+  /**
+   * Returns the fields of the specified rowType (and its superclasses) which
+   * are mapped to a column.
+   */
+  public static List<JField> getMappedFields(JClassType rowType) {
+    List<JField> fields = new ArrayList<JField>();
+    for (JClassType type = rowType; type != null
+        && !GeneratorUtils.isType(type, Object.class); type = type.getSuperclass()) {
+      for (JField field : type.getFields()) {
+        if (!field.isStatic() && !field.isTransient()) {
+          fields.add(field);
+        }
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Generates the mapper class of the specified rowType.
+   */
+  public void generate(JClassType rowType) throws UnableToCompleteException {
+    checkRowType(rowType);
+    List<JField> fields = getMappedFields(rowType);
+    boolean hasLong = false;
+    for (JField field : fields) {
+      hasLong |= field.getType() == JPrimitiveType.LONG;
+    }
+
+    String rowTypeName = genUtils.getClassName(rowType);
+    sw.println("private static final class " + getMapperName(rowType)
+        + " extends " + genUtils.getClassName(RowMapper.class) + "<"
+        + rowTypeName + "> {");
+    sw.indent();
+    if (hasLong) {
+      // long fields are assigned from a Java helper method:
+      sw.println("@" + genUtils.getClassName(UnsafeNativeLong.class));
+    }
+    sw.println("protected native void mapRows("
+        + genUtils.getClassName(JavaScriptObject.class) + " rows, "
+        + genUtils.getClassName(List.class) + "<" + rowTypeName
+        + "> result) /*-{");
+    sw.indent();
+    sw.println("for (var i = 0, n = rows.length; i < n; i++) {");
+    sw.indent();
+    sw.println("var row = rows.item(i);");
+    sw.println("var obj = @" + rowType.getQualifiedSourceName()
+        + "::new()();");
+    sw.println("var v;");
+    for (JField field : fields) {
+      Column column = field.getAnnotation(Column.class);
+      String columnName = column != null ? column.value() : field.getName();
+      sw.println("v = row[\"" + Generator.escape(columnName) + "\"];");
+      generateAssignment(field, "obj.@"
+          + field.getEnclosingType().getQualifiedSourceName() + "::"
+          + field.getName());
+    }
+    sw.println("result.@java.util.List::add(Ljava/lang/Object;)(obj);");
+    sw.outdent();
+    sw.println("}");
+    sw.outdent();
+    sw.println("}-*/;");
+    sw.outdent();
+    sw.println("}");
+  }
+
+  /**
+   * Generates the statement assigning the column value <code>v</code> to the
+   * specified field reference.
+   */
+  private void generateAssignment(JField field, String ref)
+      throws UnableToCompleteException {
+    String mapper = "@" + RowMapper.class.getCanonicalName();
+    JType type = field.getType();
+    if (type == JPrimitiveType.BOOLEAN) {
+      sw.println(ref + " = !!v;");
+    } else if (type == JPrimitiveType.INT) {
+      sw.println("if (v != null) " + ref + " = v | 0;");
+    } else if (type == JPrimitiveType.SHORT) {
+      sw.println("if (v != null) " + ref + " = v << 16 >> 16;");
+    } else if (type == JPrimitiveType.BYTE) {
+      sw.println("if (v != null) " + ref + " = v << 24 >> 24;");
+    } else if (type == JPrimitiveType.DOUBLE || type == JPrimitiveType.FLOAT) {
+      sw.println("if (v != null) " + ref + " = +v;");
+    } else if (type == JPrimitiveType.LONG) {
+      sw.println("if (v != null) " + ref + " = " + mapper
+          + "::toLong(D)(+v);");
+    } else if (GeneratorUtils.isType(type, String.class)) {
+      sw.println(ref + " = v == null ? null : String(v);");
+    } else if (GeneratorUtils.isType(type, Integer.class)) {
+      generateNullableAssignment(ref, "@java.lang.Integer::valueOf(I)(v | 0)");
+    } else if (GeneratorUtils.isType(type, Short.class)) {
+      generateNullableAssignment(ref,
+          "@java.lang.Short::valueOf(S)(v << 16 >> 16)");
+    } else if (GeneratorUtils.isType(type, Byte.class)) {
+      generateNullableAssignment(ref,
+          "@java.lang.Byte::valueOf(B)(v << 24 >> 24)");
+    } else if (GeneratorUtils.isType(type, Double.class)) {
+      generateNullableAssignment(ref, "@java.lang.Double::valueOf(D)(+v)");
+    } else if (GeneratorUtils.isType(type, Float.class)) {
+      generateNullableAssignment(ref, "@java.lang.Float::valueOf(F)(+v)");
+    } else if (GeneratorUtils.isType(type, Boolean.class)) {
+      generateNullableAssignment(ref, "@java.lang.Boolean::valueOf(Z)(!!v)");
+    } else if (GeneratorUtils.isType(type, Long.class)) {
+      generateNullableAssignment(ref, mapper + "::toLongObject(D)(+v)");
+    } else if (GeneratorUtils.isType(type, Date.class)) {
+      generateNullableAssignment(ref, mapper + "::toDate(D)(+v)");
+    } else {
+      logger.log(TreeLogger.ERROR, "Field " + field.getName() + " of "
+          + field.getEnclosingType().getQualifiedSourceName() + " has type "
+          + type.getQualifiedSourceName()
+          + ", which cannot be mapped from a column");
+      throw new UnableToCompleteException();
+    }
+  }
+
+  private void generateNullableAssignment(String ref, String value) {
+    sw.println(ref + " = v == null ? null : " + value + ";");
+  }
+
+  /**
+   * Asserts that the specified rowType can be instantiated and filled by a
+   * mapper.
+   */
+  private void checkRowType(JClassType rowType)
+      throws UnableToCompleteException {
+    String name = rowType.getQualifiedSourceName();
+    if (rowType.isClass() == null || rowType.isAbstract()) {
+      logger.log(TreeLogger.ERROR, "@RowType " + name
+          + " must be a concrete class");
+      throw new UnableToCompleteException();
+    }
+    if (rowType.isMemberType() && !rowType.isStatic()) {
+      logger.log(TreeLogger.ERROR, "@RowType " + name
+          + " must be a top level or static nested class");
+      throw new UnableToCompleteException();
+    }
+    if (!rowType.isDefaultInstantiable()) {
+      logger.log(TreeLogger.ERROR, "@RowType " + name
+          + " must have a constructor without parameters");
+      throw new UnableToCompleteException();
+    }
+    for (JField field : getMappedFields(rowType)) {
+      if (field.isFinal()) {
+        logger.log(TreeLogger.ERROR, "Field " + field.getName() + " of @RowType "
+            + name + " must not be final");
+        throw new UnableToCompleteException();
+      }
+    }
+  }
+}
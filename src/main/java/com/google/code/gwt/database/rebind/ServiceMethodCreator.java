@@ -18,17 +18,34 @@ package com.google.code.gwt.database.rebind;
 
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import com.google.code.gwt.database.client.SQLArguments;
 import com.google.code.gwt.database.client.SQLTransaction;
 import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.code.gwt.database.client.service.CallHandle;
 import com.google.code.gwt.database.client.service.Callback;
+import com.google.code.gwt.database.client.service.Compact;
+import com.google.code.gwt.database.client.service.Lane;
+import com.google.code.gwt.database.client.service.Priority;
+import com.google.code.gwt.database.client.service.RowIdListCallback;
+import com.google.code.gwt.database.client.service.RowType;
+import com.google.code.gwt.database.client.service.SingleFlight;
 import com.google.code.gwt.database.client.service.Update;
 import com.google.code.gwt.database.client.service.impl.DataServiceUtils;
+import com.google.code.gwt.database.client.service.impl.MethodDescriptor;
+import com.google.code.gwt.database.client.service.impl.MethodDescriptor.ResultKind;
+import com.google.code.gwt.database.client.service.impl.SqlTemplate;
 import com.google.code.gwt.database.client.util.StringUtils;
 import com.google.gwt.core.ext.GeneratorContext;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.core.ext.typeinfo.JMethod;
 import com.google.gwt.core.ext.typeinfo.JParameter;
 import com.google.gwt.core.ext.typeinfo.JType;
@@ -51,9 +68,118 @@ public abstract class ServiceMethodCreator {
   protected Annotation query;
   protected GeneratorUtils genUtils;
 
+  /**
+   * The maximum number of parameters SQLite binds to a single statement.
+   */
+  private static final int MAX_BULK_PARAMETERS = 999;
+
+  /**
+   * The maximum number of rows inserted by a single bulk statement.
+   */
+  private static final int MAX_BULK_ROWS = 500;
+
   protected JParameter callback;
   protected String txVarName;
 
+  /**
+   * The SQL statement and parameters expressions of the statement prepared
+   * before the transaction is started, if any.
+   */
+  private String[] preparedStatement;
+
+  /**
+   * The SQL statement and parameters expressions of the statement prepared
+   * once before the loop over the <code>foreach</code> collection, if any.
+   */
+  private String[] loopStatement;
+
+  /**
+   * The statements binding the parameters which change per item of the
+   * <code>foreach</code> collection into the {@link #loopStatement}.
+   */
+  private List<String> loopBindings;
+
+  /**
+   * The name of the {@link SqlTemplate} field of the SQL statement, if it has
+   * collection or array parameters.
+   */
+  private String templateVarName;
+
+  /**
+   * The name of the field holding the SQL text variants of a statement with
+   * optional clauses, if any.
+   */
+  private String variantsVarName;
+
+  /**
+   * The maximum number of optional clauses of a SQL statement, which has a
+   * SQL text variant for each combination of them.
+   */
+  private static final int MAX_OPTIONAL_CLAUSES = 8;
+
+  /**
+   * Matches the identifier an expression starts with.
+   */
+  private static final Pattern LEADING_IDENTIFIER = Pattern.compile(
+      "[\\p{L}_$][\\p{L}\\p{N}_$]*");
+
+  /**
+   * For each collection or array parameter of the {@link #templateVarName
+   * template}: the names of the variables holding its number of items and
+   * whether these are loaded into a temporary table, or <code>null</code> if
+   * the parameter is not an <code>IN (...)</code> list.
+   */
+  private List<String> countVarNames = new ArrayList<String>();
+  private List<String> tableVarNames = new ArrayList<String>();
+
+  /**
+   * Matches the SQL text before a collection or array parameter which
+   * represents a complete <code>IN (...)</code> list.
+   */
+  private static final Pattern IN_LIST_START = Pattern.compile(
+      "(?is).*\\bIN\\s*\\(\\s*");
+
+  /**
+   * Matches the SQL text after a collection or array parameter which
+   * represents a complete <code>IN (...)</code> list.
+   */
+  private static final Pattern IN_LIST_END = Pattern.compile("(?s)\\s*\\).*");
+
+  /**
+   * The name of the {@link CallHandle} variable of the service method, if
+   * any.
+   */
+  private String handleVarName;
+
+  /**
+   * The name of the List or array variable holding the items of a chunked
+   * <code>foreach</code> collection, if any.
+   */
+  private String itemsVarName;
+
+  /**
+   * <code>true</code> if {@link #itemsVarName} represents an array.
+   */
+  private boolean itemsIsArray;
+
+  /**
+   * The name of the {@link MethodDescriptor} field of a service method
+   * generated in {@link Compact} form, if any.
+   */
+  private String descriptorVarName;
+
+  /**
+   * The SQL statements (and optional clauses) tokenized so far, as the same
+   * statement is analyzed for each part of the generated code.
+   */
+  private Map<String, List<String>> tokenizedSql = new HashMap<String, List<String>>();
+
+  /**
+   * The outcome of {@link #isDynamicParameter(String)} per expression, which
+   * involves looking up the types in the TypeOracle.
+   */
+  private Map<String, Boolean> dynamicParameters = new HashMap<String, Boolean>();
+
   /**
    * Sets the context for generating the Transaction Callback.
    */
@@ -73,21 +199,659 @@ public abstract class ServiceMethodCreator {
         service.getParameters());
   }
 
+  /**
+   * Generates the static fields used by the service method, if any.
+   * 
+   * <p>
+   * A SQL statement with collection or array parameters gets a
+   * {@link SqlTemplate} field, which caches its SQL text per number of
+   * items. A SQL statement with optional clauses gets a field holding its SQL
+   * text for each combination of present clauses. A service method generated
+   * in {@link Compact} form gets a {@link MethodDescriptor} field.
+   * </p>
+   * 
+   * @param index the index of the service method, which makes the names of
+   *          the fields unique
+   */
+  public void generateFields(int index) throws UnableToCompleteException {
+    List<String> tokenizedStmt = tokenizeSql(sql);
+    if (canBeCompact(tokenizedStmt)) {
+      generateDescriptorField("METHOD_" + index, tokenizedStmt);
+      return;
+    }
+    if (getOptionalClauseCount(tokenizedStmt) > 0) {
+      generateVariantsField("SQL_VARIANTS_" + index, tokenizedStmt);
+      return;
+    }
+    String templateVarName = "SQL_TEMPLATE_" + index;
+    List<String> parts = new ArrayList<String>();
+    List<Boolean> rounded = new ArrayList<Boolean>();
+    int fixedParameters = 0;
+    StringBuilder sqlLiteral = new StringBuilder();
+    for (int i = 0; i < tokenizedStmt.size(); i++) {
+      String token = tokenizedStmt.get(i);
+      if ((i % 2) == 0) {
+        // SQL token:
+        sqlLiteral.append(token);
+      } else if (isDynamicParameter(token)) {
+        parts.add(sqlLiteral.toString());
+        sqlLiteral = new StringBuilder();
+        // Only a complete IN (...) list can be padded safely:
+        rounded.add(IN_LIST_START.matcher(parts.get(parts.size() - 1)).matches()
+            && IN_LIST_END.matcher(tokenizedStmt.get(i + 1)).matches());
+      } else {
+        sqlLiteral.append("?");
+        fixedParameters++;
+      }
+    }
+    if (parts.isEmpty()) {
+      return;
+    }
+    parts.add(sqlLiteral.toString());
+
+    this.templateVarName = templateVarName;
+    for (int i = 0; i < rounded.size(); i++) {
+      if (rounded.get(i)) {
+        countVarNames.add(GeneratorUtils.getVariableName("count" + i,
+            service.getParameters()));
+        tableVarNames.add(GeneratorUtils.getVariableName("table" + i,
+            service.getParameters()));
+      } else {
+        countVarNames.add(null);
+        tableVarNames.add(null);
+      }
+    }
+    List<String> escapedParts = new ArrayList<String>();
+    for (String part : parts) {
+      escapedParts.add(StringUtils.getEscapedString(part));
+    }
+    sw.println("private static final "
+        + genUtils.getClassName(SqlTemplate.class) + " " + templateVarName
+        + " = new " + genUtils.getClassName(SqlTemplate.class)
+        + "(new String[] {" + StringUtils.join(escapedParts, ", ")
+        + "}, new boolean[] {" + StringUtils.join(rounded, ", ") + "}, "
+        + fixedParameters + ");");
+  }
+
+  /**
+   * Returns the number of optional clauses in the specified tokenized SQL
+   * statement.
+   */
+  private int getOptionalClauseCount(List<String> tokenizedStmt) {
+    int count = 0;
+    for (int i = 1; i < tokenizedStmt.size(); i += 2) {
+      if (isOptionalClause(tokenizedStmt.get(i))) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns <code>true</code> if the specified parameter token represents an
+   * optional clause, e.g. <code>{? AND name = {name}}</code>.
+   */
+  private boolean isOptionalClause(String token) {
+    return token.startsWith("?");
+  }
+
+  /**
+   * Returns the tokenized SQL of the specified optional clause, which must
+   * contain at least one parameter and no other optional clauses.
+   */
+  private List<String> tokenizeOptionalClause(String token)
+      throws UnableToCompleteException {
+    List<String> tokenizedClause = tokenizeSql(token.substring(1));
+    if (tokenizedClause.size() == 1) {
+      logger.log(TreeLogger.ERROR, "The optional clause '{" + token
+          + "}' has no parameter");
+      throw new UnableToCompleteException();
+    }
+    for (int i = 1; i < tokenizedClause.size(); i += 2) {
+      String expression = tokenizedClause.get(i);
+      if (isOptionalClause(expression) || isDynamicParameter(expression)) {
+        logger.log(TreeLogger.ERROR, "The optional clause '{" + token
+            + "}' cannot contain an optional clause or a collection or "
+            + "array parameter");
+        throw new UnableToCompleteException();
+      }
+    }
+    return tokenizedClause;
+  }
+
+  /**
+   * Returns the condition under which the specified optional clause is
+   * applied: each service method parameter used by its parameters must not be
+   * <code>null</code>.
+   */
+  private String getOptionalClauseCondition(String token)
+      throws UnableToCompleteException {
+    List<String> tokenizedClause = tokenizeOptionalClause(token);
+    List<String> conditions = new ArrayList<String>();
+    for (int i = 1; i < tokenizedClause.size(); i += 2) {
+      // The service method parameter the expression starts with:
+      Matcher m = LEADING_IDENTIFIER.matcher(tokenizedClause.get(i));
+      if (m.lookingAt()) {
+        JType type = GeneratorUtils.findType(m.group(),
+            service.getParameters());
+        String condition = m.group() + " != null";
+        if (type != null && type.isPrimitive() == null
+            && !conditions.contains(condition)) {
+          conditions.add(condition);
+        }
+      }
+    }
+    if (conditions.isEmpty()) {
+      logger.log(TreeLogger.ERROR, "The optional clause '{" + token
+          + "}' does not use any service method parameter which can be null");
+      throw new UnableToCompleteException();
+    }
+    return StringUtils.join(conditions, " && ");
+  }
+
+  /**
+   * Generates the field holding the SQL text of the statement for each
+   * combination of present optional clauses. The index of the SQL text is the
+   * bitmask of the present clauses, the first clause being the lowest bit.
+   */
+  private void generateVariantsField(String variantsVarName,
+      List<String> tokenizedStmt) throws UnableToCompleteException {
+    int clauses = getOptionalClauseCount(tokenizedStmt);
+    if (clauses > MAX_OPTIONAL_CLAUSES) {
+      logger.log(TreeLogger.ERROR, "A SQL statement cannot have more than "
+          + MAX_OPTIONAL_CLAUSES + " optional clauses");
+      throw new UnableToCompleteException();
+    }
+    if (!getDynamicParameters().isEmpty()) {
+      logger.log(TreeLogger.ERROR, "A SQL statement with optional clauses "
+          + "cannot have collection or array parameters");
+      throw new UnableToCompleteException();
+    }
+    List<String> variants = new ArrayList<String>();
+    for (int mask = 0; mask < (1 << clauses); mask++) {
+      StringBuilder variant = new StringBuilder();
+      int clause = 0;
+      for (int i = 0; i < tokenizedStmt.size(); i++) {
+        String token = tokenizedStmt.get(i);
+        if ((i % 2) == 0) {
+          // SQL token:
+          variant.append(token);
+        } else if (isOptionalClause(token)) {
+          if ((mask & (1 << clause++)) != 0) {
+            List<String> tokenizedClause = tokenizeOptionalClause(token);
+            for (int j = 0; j < tokenizedClause.size(); j++) {
+              variant.append((j % 2) == 0 ? tokenizedClause.get(j) : "?");
+            }
+          }
+        } else {
+          variant.append("?");
+        }
+      }
+      variants.add(StringUtils.getEscapedString(variant.toString()));
+    }
+    this.variantsVarName = variantsVarName;
+    sw.println("private static final String[] " + variantsVarName + " = {");
+    sw.indent();
+    for (int i = 0; i < variants.size(); i++) {
+      sw.println(variants.get(i) + (i < variants.size() - 1 ? "," : "};"));
+    }
+    sw.outdent();
+  }
+
+  /**
+   * Generates the code preparing a SQL statement with optional clauses: the
+   * SQL text is selected by the bitmask of the clauses which apply, and only
+   * the parameters of these clauses are bound.
+   * 
+   * @see #generateSqlStatement(boolean, List)
+   */
+  private String[] generateOptionalSqlStatement(String modifier,
+      List<String> tokenizedStmt) throws UnableToCompleteException {
+    String maskVarName = GeneratorUtils.getVariableName("mask",
+        service.getParameters());
+    String paramsVarName = GeneratorUtils.getVariableName("params",
+        service.getParameters());
+    String indexVarName = GeneratorUtils.getVariableName("i",
+        service.getParameters());
+    String sqlVarName = GeneratorUtils.getVariableName("sql",
+        service.getParameters());
+
+    List<String> bits = new ArrayList<String>();
+    StringBuilder paramsCount = new StringBuilder();
+    int fixedCount = 0;
+    int clause = 0;
+    for (int i = 1; i < tokenizedStmt.size(); i += 2) {
+      String token = tokenizedStmt.get(i);
+      if (isOptionalClause(token)) {
+        int bit = 1 << clause++;
+        bits.add("(" + getOptionalClauseCondition(token) + " ? " + bit
+            + " : 0)");
+        paramsCount.append(" + ((" + maskVarName + " & " + bit + ") != 0 ? "
+            + (tokenizeOptionalClause(token).size() / 2) + " : 0)");
+      } else {
+        fixedCount++;
+      }
+    }
+    sw.println("int " + maskVarName + " = " + StringUtils.join(bits, " | ")
+        + ";");
+    sw.println(modifier + "Object[] " + paramsVarName + " = new Object["
+        + fixedCount + paramsCount + "];");
+    sw.println("int " + indexVarName + " = 0;");
+    clause = 0;
+    for (int i = 1; i < tokenizedStmt.size(); i += 2) {
+      String token = tokenizedStmt.get(i);
+      if (isOptionalClause(token)) {
+        List<String> tokenizedClause = tokenizeOptionalClause(token);
+        sw.println("if ((" + maskVarName + " & " + (1 << clause++)
+            + ") != 0) {");
+        sw.indent();
+        for (int j = 1; j < tokenizedClause.size(); j += 2) {
+          sw.println(paramsVarName + "[" + indexVarName + "++] = "
+              + tokenizedClause.get(j) + ";");
+        }
+        sw.outdent();
+        sw.println("}");
+      } else {
+        sw.println(paramsVarName + "[" + indexVarName + "++] = " + token + ";");
+      }
+    }
+    sw.println(modifier + "String " + sqlVarName + " = " + variantsVarName
+        + "[" + maskVarName + "];");
+    return new String[] {sqlVarName, paramsVarName};
+  }
+
   /**
    * Generates the actual service method body.
    */
   public void generateServiceMethodBody() throws UnableToCompleteException {
-    String txMethodName = query.annotationType().equals(Update.class)
-        ? "transaction" : "readTransaction";
+    if (descriptorVarName != null) {
+      // Let the shared executor do the work:
+      String[] statement = isNativeBindable() ? generateSqlArguments()
+          : generateSqlStatement(false, null);
+      sw.println("execute(" + descriptorVarName + ", " + statement[1] + ", "
+          + callback.getName() + ");");
+      return;
+    }
+    boolean isUpdate = query.annotationType().equals(Update.class);
+    String txMethodName = isUpdate ? "transaction" : "readTransaction";
+    generateTempTableChecks();
+    if (!isUpdate && isSingleFlight()) {
+      // The statement must be known before the transaction is started, to
+      // find out whether an identical one is already in progress:
+      preparedStatement = generateSqlStatement(true, null);
+    }
+    handleVarName = getHandleParameterName();
+    if (handleVarName == null && isReturningHandle()) {
+      handleVarName = GeneratorUtils.getVariableName("handle",
+          service.getParameters());
+      sw.println("final " + genUtils.getClassName(CallHandle.class) + " "
+          + handleVarName + " = new " + genUtils.getClassName(CallHandle.class)
+          + "();");
+    }
+    if (getChunkSize() > 0) {
+      generateChunkItems();
+    }
     sw.println(txMethodName + "(new " + getTransactionCallbackClassName() + "("
         + callback.getName() + ") {");
     sw.indent();
 
+    sw.println("@Override");
+    sw.println("public String getMethodName() {");
+    sw.indentln("return \"" + service.getName() + "\";");
+    sw.println("}");
+
+    if (handleVarName != null) {
+      sw.println("@Override");
+      sw.println("public " + genUtils.getClassName(CallHandle.class)
+          + " getHandle() {");
+      sw.indentln("return " + handleVarName + ";");
+      sw.println("}");
+    }
+
+    Priority priority = getPriority();
+    if (priority != null) {
+      sw.println("@Override");
+      sw.println("public " + genUtils.getClassName(Lane.class) + " getLane() {");
+      sw.indentln("return " + genUtils.getClassName(Lane.class) + "."
+          + priority.value().name() + ";");
+      sw.println("}");
+    }
+
+    List<String> tables = getTableVarNames();
+    if (!isUpdate && !tables.isEmpty()) {
+      sw.println("@Override");
+      sw.println("public boolean isReadWrite() {");
+      sw.indentln("return " + StringUtils.join(tables, " || ") + ";");
+      sw.println("}");
+    }
+
+    if (itemsVarName != null) {
+      sw.println("@Override");
+      sw.println("public int getChunkSize() {");
+      sw.indentln("return " + getChunkSize() + ";");
+      sw.println("}");
+      sw.println("@Override");
+      sw.println("public int getItemCount() {");
+      sw.indentln("return " + itemsVarName
+          + (itemsIsArray ? ".length;" : ".size();"));
+      sw.println("}");
+    }
+
     generateTransactionCallbackBody();
 
     // ends new TransactionCallback() and (read)transaction() call
     sw.outdent();
-    sw.println("});");
+    if (preparedStatement != null) {
+      sw.println("}, " + preparedStatement[0] + ", " + preparedStatement[1]
+          + ");");
+    } else {
+      sw.println("});");
+    }
+    if (isReturningHandle()) {
+      sw.println("return " + handleVarName + ";");
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the service method is generated in
+   * {@link Compact} form. Only valid after {@link #generateFields(int)}.
+   */
+  public boolean isCompact() {
+    return descriptorVarName != null;
+  }
+
+  /**
+   * Returns the {@link RowType} the rows of the service method are mapped to,
+   * or <code>null</code> if the rows are not mapped.
+   */
+  public JClassType getMappedRowType() throws UnableToCompleteException {
+    return null;
+  }
+
+  /**
+   * Returns the kind of result represented by the callback of the service
+   * method, or <code>null</code> if the callback type cannot be handled by a
+   * {@link MethodDescriptor}.
+   */
+  protected ResultKind getResultKind() {
+    return null;
+  }
+
+  /**
+   * Returns <code>true</code> if the service method is declared in a
+   * {@link Compact} DataService, and executes a single statement with plain
+   * parameters only.
+   */
+  private boolean canBeCompact(List<String> tokenizedStmt)
+      throws UnableToCompleteException {
+    if (service.getEnclosingType().getAnnotation(Compact.class) == null
+        || StringUtils.isNotEmpty(foreach) || isSingleFlight()
+        || getHandleParameterName() != null || isReturningHandle()
+        || getResultKind() == null) {
+      return false;
+    }
+    for (int i = 1; i < tokenizedStmt.size(); i += 2) {
+      String token = tokenizedStmt.get(i);
+      if (isOptionalClause(token) || isDynamicParameter(token)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Generates the {@link MethodDescriptor} field of a service method generated
+   * in {@link Compact} form.
+   */
+  private void generateDescriptorField(String descriptorVarName,
+      List<String> tokenizedStmt) {
+    StringBuilder sqlLiteral = new StringBuilder();
+    for (int i = 0; i < tokenizedStmt.size(); i++) {
+      sqlLiteral.append((i % 2) == 0 ? tokenizedStmt.get(i) : "?");
+    }
+    Priority priority = getPriority();
+    String descriptorClassName = genUtils.getClassName(MethodDescriptor.class);
+    sw.println("private static final " + descriptorClassName + " "
+        + descriptorVarName + " = new " + descriptorClassName + "(\""
+        + service.getName() + "\", "
+        + StringUtils.getEscapedString(sqlLiteral.toString()) + ", "
+        + descriptorClassName + ".ResultKind." + getResultKind().name() + ", "
+        + !query.annotationType().equals(Update.class) + ", "
+        + (priority != null ? genUtils.getClassName(Lane.class) + "."
+            + priority.value().name() : "null") + ");");
+    this.descriptorVarName = descriptorVarName;
+  }
+
+  /**
+   * Generates the variables holding the number of items of each
+   * <code>IN (...)</code> list parameter, and whether these items are loaded
+   * into a temporary table because there are too many of them.
+   */
+  private void generateTempTableChecks() throws UnableToCompleteException {
+    if (Collections.frequency(tableVarNames, null) == tableVarNames.size()) {
+      return;
+    }
+    List<String> expressions = getDynamicParameters();
+    List<String> counts = new ArrayList<String>();
+    for (int i = 0; i < tableVarNames.size(); i++) {
+      if (tableVarNames.get(i) != null) {
+        sw.println("final int " + countVarNames.get(i) + " = "
+            + getSizeExpression(expressions.get(i)) + ";");
+        counts.add(countVarNames.get(i));
+      } else {
+        counts.add(getSizeExpression(expressions.get(i)));
+      }
+    }
+    // The decision depends on the total number of parameters:
+    String tablesVarName = GeneratorUtils.getVariableName("tables",
+        service.getParameters());
+    sw.println("final boolean[] " + tablesVarName + " = " + templateVarName
+        + ".getTempTables(new int[] {" + StringUtils.join(counts, ", ")
+        + "}, getInListThreshold());");
+    for (int i = 0; i < tableVarNames.size(); i++) {
+      if (tableVarNames.get(i) != null) {
+        sw.println("final boolean " + tableVarNames.get(i) + " = "
+            + tablesVarName + "[" + i + "];");
+      }
+    }
+  }
+
+  /**
+   * Generates the statements loading the items of the <code>IN (...)</code>
+   * list parameters into their temporary tables, if required.
+   */
+  private void generateCreateTempTables() throws UnableToCompleteException {
+    List<String> expressions = getDynamicParameters();
+    for (int i = 0; i < tableVarNames.size(); i++) {
+      if (tableVarNames.get(i) != null) {
+        String valuesVarName = GeneratorUtils.getVariableName("values" + i,
+            service.getParameters());
+        sw.println("if (" + tableVarNames.get(i) + ") {");
+        sw.indent();
+        sw.println("Object[] " + valuesVarName + " = new Object["
+            + countVarNames.get(i) + "];");
+        sw.println(genUtils.getClassName(DataServiceUtils.class)
+            + ".addParameters(" + valuesVarName + ", 0, " + expressions.get(i)
+            + ", " + countVarNames.get(i) + ");");
+        sw.println("createTempTable(" + txVarName + ", " + templateVarName
+            + ".getTableName(" + i + "), " + valuesVarName + ");");
+        sw.outdent();
+        sw.println("}");
+      }
+    }
+  }
+
+  /**
+   * Generates the statements dropping the temporary tables created by
+   * {@link #generateCreateTempTables()}.
+   */
+  private void generateDropTempTables() {
+    for (int i = 0; i < tableVarNames.size(); i++) {
+      if (tableVarNames.get(i) != null) {
+        sw.println("if (" + tableVarNames.get(i) + ") {");
+        sw.indentln("dropTempTable(" + txVarName + ", " + templateVarName
+            + ".getTableName(" + i + "));");
+        sw.println("}");
+      }
+    }
+  }
+
+  /**
+   * Returns the names of the variables telling whether a temporary table is
+   * loaded.
+   */
+  private List<String> getTableVarNames() {
+    List<String> result = new ArrayList<String>();
+    for (String tableVarName : tableVarNames) {
+      if (tableVarName != null) {
+        result.add(tableVarName);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the expressions of the collection or array parameters of the SQL
+   * statement.
+   */
+  private List<String> getDynamicParameters() throws UnableToCompleteException {
+    List<String> result = new ArrayList<String>();
+    List<String> tokenizedStmt = tokenizeSql(sql);
+    for (int i = 1; i < tokenizedStmt.size(); i += 2) {
+      if (isDynamicParameter(tokenizedStmt.get(i))) {
+        result.add(tokenizedStmt.get(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the expression for the number of items of the specified
+   * collection or array parameter.
+   */
+  private String getSizeExpression(String expression) {
+    JType type = GeneratorUtils.findType(expression, service.getParameters());
+    if (type.isArray() != null) {
+      return expression + ".length";
+    }
+    return genUtils.getClassName(DataServiceUtils.class) + ".getSize("
+        + expression + ")";
+  }
+
+  /**
+   * Returns the {@link Update#chunkSize()} of the service method, or
+   * <code>0</code> if its statements are not executed in chunks.
+   */
+  private int getChunkSize() {
+    return query.annotationType().equals(Update.class)
+        && StringUtils.isNotEmpty(foreach) ? ((Update) query).chunkSize() : 0;
+  }
+
+  /**
+   * Generates the variable holding the items of a chunked <code>foreach</code>
+   * collection, which allows each chunk to address its items by index.
+   */
+  private void generateChunkItems() throws UnableToCompleteException {
+    JType collection = GeneratorUtils.findType(foreach,
+        service.getParameters());
+    if (collection == null) {
+      logger.log(TreeLogger.ERROR, "@Update(chunkSize) requires a parameter "
+          + "on the service method named '" + foreach + "'");
+      throw new UnableToCompleteException();
+    }
+    if (collection.isArray() != null) {
+      itemsVarName = foreach;
+      itemsIsArray = true;
+    } else {
+      itemsVarName = GeneratorUtils.getVariableName("items",
+          service.getParameters());
+      sw.println("final " + genUtils.getClassName(List.class) + "<"
+          + getForEachType(collection) + "> " + itemsVarName + " = "
+          + genUtils.getClassName(DataServiceUtils.class) + ".toList("
+          + foreach + ");");
+    }
+  }
+
+  /**
+   * Returns the type of the items of the specified <code>foreach</code>
+   * collection.
+   */
+  private String getForEachType(JType collection)
+      throws UnableToCompleteException {
+    String forEachType = null;
+    if (collection == null) {
+      logger.log(TreeLogger.WARN,
+          "no parameter on the service method named '" + foreach
+              + "' found. Using Object as the type for the loop variable '_'");
+    } else if (collection.isParameterized() != null) {
+      forEachType = genUtils.getTypeParameter(collection);
+    } else if (collection.isArray() != null) {
+      forEachType = genUtils.getClassName(collection.isArray().getComponentType());
+    }
+    return forEachType == null ? "Object" : forEachType;
+  }
+
+  /**
+   * Generates the start of the loop over the <code>foreach</code> collection,
+   * declaring the loop variable <code>_</code>. A chunked collection is
+   * iterated by index, from the first to the last item of the current chunk.
+   */
+  private void generateForEachLoop(String forEachType) {
+    if (itemsVarName == null) {
+      sw.println("for (" + forEachType + " _ : " + foreach + ") {");
+      sw.indent();
+    } else {
+      String indexVarName = GeneratorUtils.getVariableName("n",
+          service.getParameters());
+      sw.println("for (int " + indexVarName + " = getChunkStart(); "
+          + indexVarName + " < getChunkEnd(); " + indexVarName + "++) {");
+      sw.indent();
+      sw.println(forEachType + " _ = " + itemsVarName
+          + (itemsIsArray ? "[" + indexVarName + "];" : ".get("
+              + indexVarName + ");"));
+    }
+  }
+
+  /**
+   * Returns the name of the {@link CallHandle} parameter of the service
+   * method, or <code>null</code> if there is none.
+   */
+  private String getHandleParameterName() {
+    for (JParameter param : service.getParameters()) {
+      if (GeneratorUtils.isType(param.getType(), CallHandle.class)) {
+        return param.getName();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns <code>true</code> if the service method returns a
+   * {@link CallHandle}.
+   */
+  private boolean isReturningHandle() {
+    return GeneratorUtils.isType(service.getReturnType(), CallHandle.class);
+  }
+
+  /**
+   * Returns <code>true</code> if the service method, or the DataService
+   * declaring it, is annotated with {@link SingleFlight}.
+   */
+  private boolean isSingleFlight() {
+    return service.getAnnotation(SingleFlight.class) != null
+        || service.getEnclosingType().getAnnotation(SingleFlight.class) != null;
+  }
+
+  /**
+   * Returns the {@link Priority} of the service method, or else the one of the
+   * DataService declaring it, if any.
+   */
+  private Priority getPriority() {
+    Priority priority = service.getAnnotation(Priority.class);
+    if (priority == null) {
+      priority = service.getEnclosingType().getAnnotation(Priority.class);
+    }
+    return priority;
   }
 
   /**
@@ -105,6 +869,12 @@ public abstract class ServiceMethodCreator {
     sw.println("public void onTransactionStart("
         + genUtils.getClassName(SQLTransaction.class) + " " + txVarName + ") {");
     sw.indent();
+    if (handleVarName != null) {
+      // Don't execute anything if nobody is waiting for the result anymore:
+      sw.println("if (isAbandoned()) {");
+      sw.indentln("return;");
+      sw.println("}");
+    }
 
     generateOnTransactionStartBody();
 
@@ -152,34 +922,252 @@ public abstract class ServiceMethodCreator {
       // Find the types, parameters, assert not-nulls, etc.:
       JType collection = GeneratorUtils.findType(foreach,
           service.getParameters());
-      String forEachType = null;
-      if (collection == null) {
-        logger.log(TreeLogger.WARN,
-            "no parameter on the service method named '" + foreach
-                + "' found. Using Object as the type for the loop variable '_'");
-      } else if (collection.isParameterized() != null) {
-        forEachType = genUtils.getTypeParameter(collection);
-      } else if (collection.isArray() != null) {
-        forEachType = genUtils.getClassName(collection.isArray().getComponentType());
+      String forEachType = getForEachType(collection);
+
+      if (isBulk()) {
+        generateExecuteBulkSqlStatements(collection, forEachType);
+        return;
       }
-      if (forEachType == null) {
-        forEachType = "Object";
+      if (((Update) query).bulk()) {
+        logger.log(TreeLogger.WARN, service.getName() + ": bulk=true is "
+            + "ignored for a " + RowIdListCallback.class.getSimpleName()
+            + ", which needs the exact ROWID of each item. The items are "
+            + "inserted one statement at a time");
       }
 
-      sw.println("for (" + forEachType + " _ : " + foreach + ") {");
-      sw.indent();
+      if (!getDynamicParameters().isEmpty()) {
+        // Build the SQL statement and the parameters which are the same for
+        // all items only once:
+        loopBindings = new ArrayList<String>();
+        loopStatement = generateSqlStatement(false, loopBindings);
+        generateCreateTempTables();
+      }
+      generateForEachLoop(forEachType);
       generateExecuteSqlStatement();
       sw.outdent();
       sw.println("}");
+      generateDropTempTables();
     }
   }
 
+  /**
+   * Returns <code>true</code> if the items of the <code>foreach</code>
+   * collection are inserted using multi-row INSERT statements.
+   * 
+   * <p>
+   * A {@link RowIdListCallback} needs the exact ROWID of each item, which
+   * cannot be derived reliably from a multi-row INSERT (e.g. with an
+   * <code>OR IGNORE</code> conflict clause or explicit ROWID values), so its
+   * items are always inserted one statement at a time.
+   * </p>
+   */
+  protected boolean isBulk() {
+    return query.annotationType().equals(Update.class)
+        && ((Update) query).bulk()
+        && !GeneratorUtils.isType(callback.getType(), RowIdListCallback.class);
+  }
+
+  /**
+   * Generates the <code>tx.executeSql(...);</code> calls inserting the items
+   * of the <code>foreach</code> collection with multi-row INSERT statements.
+   * 
+   * <p>
+   * The single-row SQL statement is split into the part up to the
+   * <code>VALUES</code> row tuple, the row tuple itself and the part after
+   * it. The row tuple is repeated as often as the number of bound parameters
+   * allows ({@value #MAX_BULK_PARAMETERS}), up to {@value #MAX_BULK_ROWS}
+   * rows per statement.
+   * </p>
+   */
+  private void generateExecuteBulkSqlStatements(JType collection,
+      String forEachType) throws UnableToCompleteException {
+    List<String> tokenizedStmt = tokenizeSql(sql);
+    StringBuilder sqlLiteral = new StringBuilder();
+    List<Integer> placeholders = new ArrayList<Integer>();
+    List<String> expressions = new ArrayList<String>();
+    for (int i = 0; i < tokenizedStmt.size(); i++) {
+      String token = tokenizedStmt.get(i);
+      if ((i % 2) == 0) {
+        // SQL token:
+        sqlLiteral.append(token);
+      } else {
+        // Parameter token:
+        if (isDynamicParameter(token)) {
+          logger.log(TreeLogger.ERROR, "A bulk insert cannot use the "
+              + "collection or array parameter '" + token + "'");
+          throw new UnableToCompleteException();
+        }
+        if (isOptionalClause(token)) {
+          logger.log(TreeLogger.ERROR, "A bulk insert cannot use the "
+              + "optional clause '{" + token + "}'");
+          throw new UnableToCompleteException();
+        }
+        placeholders.add(sqlLiteral.length());
+        sqlLiteral.append("?");
+        expressions.add(token);
+      }
+    }
+    String stmt = sqlLiteral.toString();
+
+    // Find the row tuple following the VALUES keyword:
+    int values = stmt.toUpperCase().lastIndexOf("VALUES");
+    int open = values < 0 ? -1 : stmt.indexOf('(', values);
+    if (open < 0 || stmt.substring(values + 6, open).trim().length() > 0) {
+      logger.log(TreeLogger.ERROR, "A bulk insert requires an "
+          + "'INSERT ... VALUES (...)' statement");
+      throw new UnableToCompleteException();
+    }
+    int close = findClosingParenthesis(stmt, open);
+    for (int placeholder : placeholders) {
+      if (placeholder < open || placeholder > close) {
+        logger.log(TreeLogger.ERROR, "A bulk insert requires all parameters "
+            + "to be part of the VALUES (...) row");
+        throw new UnableToCompleteException();
+      }
+    }
+    int rowSize = expressions.size();
+    if (rowSize == 0) {
+      logger.log(TreeLogger.ERROR, "A bulk insert requires at least one "
+          + "parameter in the VALUES (...) row");
+      throw new UnableToCompleteException();
+    }
+    int maxRows = Math.min(MAX_BULK_ROWS, MAX_BULK_PARAMETERS / rowSize);
+    if (maxRows == 0) {
+      logger.log(TreeLogger.ERROR, "A bulk insert cannot bind more than "
+          + MAX_BULK_PARAMETERS + " parameters per row");
+      throw new UnableToCompleteException();
+    }
+
+    String sizeVarName = GeneratorUtils.getVariableName("size",
+        service.getParameters());
+    String paramsVarName = GeneratorUtils.getVariableName("params",
+        service.getParameters());
+    String indexVarName = GeneratorUtils.getVariableName("i",
+        service.getParameters());
+    String utils = genUtils.getClassName(DataServiceUtils.class);
+
+    if (itemsVarName != null) {
+      sw.println("int " + sizeVarName + " = getChunkEnd() - getChunkStart();");
+    } else if (collection != null && collection.isArray() != null) {
+      sw.println("int " + sizeVarName + " = " + foreach + ".length;");
+    } else {
+      sw.println("int " + sizeVarName + " = " + utils + ".getSize(" + foreach
+          + ");");
+    }
+    sw.println("Object[] " + paramsVarName + " = null;");
+    sw.println("int " + indexVarName + " = 0;");
+    generateForEachLoop(forEachType);
+    sw.println("if (" + indexVarName + " == 0) {");
+    sw.indentln(paramsVarName + " = new Object[Math.min(" + sizeVarName + ", "
+        + maxRows + ") * " + rowSize + "];");
+    sw.println("}");
+    for (String expression : expressions) {
+      sw.println(paramsVarName + "[" + indexVarName + "++] = " + expression
+          + ";");
+    }
+    sw.println("if (" + indexVarName + " == " + paramsVarName + ".length) {");
+    sw.indent();
+    sw.print("exec(" + txVarName + ", " + utils + ".getBulkSql("
+        + StringUtils.getEscapedString(stmt.substring(0, open)) + ", "
+        + StringUtils.getEscapedString(stmt.substring(open, close + 1)) + ", "
+        + StringUtils.getEscapedString(stmt.substring(close + 1)) + ", "
+        + indexVarName + " / " + rowSize + "), " + paramsVarName);
+    generateStatementCallbackParameter();
+    sw.println(");");
+    sw.println(sizeVarName + " -= " + indexVarName + " / " + rowSize + ";");
+    sw.println(indexVarName + " = 0;");
+    sw.outdent();
+    sw.println("}");
+    sw.outdent();
+    sw.println("}");
+  }
+
+  /**
+   * Returns the index of the parenthesis closing the one at the specified
+   * index, skipping quoted literals.
+   */
+  private int findClosingParenthesis(String stmt, int open)
+      throws UnableToCompleteException {
+    int depth = 0;
+    char quote = 0;
+    for (int i = open; i < stmt.length(); i++) {
+      char ch = stmt.charAt(i);
+      if (quote != 0) {
+        if (ch == quote) {
+          quote = 0;
+        }
+      } else if (ch == '\'' || ch == '"') {
+        quote = ch;
+      } else if (ch == '(') {
+        depth++;
+      } else if (ch == ')' && --depth == 0) {
+        return i;
+      }
+    }
+    logger.log(TreeLogger.ERROR, "The VALUES (...) row of the bulk insert is "
+        + "not closed");
+    throw new UnableToCompleteException();
+  }
+
   /**
    * Generates a <code>tx.executeSql(...);</code> call statement.
    * 
    * @throws UnableToCompleteException
    */
   protected void generateExecuteSqlStatement() throws UnableToCompleteException {
+    String[] statement = preparedStatement;
+    String execMethodName = "exec";
+    if (loopStatement != null) {
+      statement = loopStatement;
+      for (String binding : loopBindings) {
+        sw.println(binding);
+      }
+    } else if (statement == null && isNativeBindable()) {
+      statement = generateSqlArguments();
+      execMethodName = "execNative";
+    } else if (statement == null) {
+      statement = generateSqlStatement(false, null);
+    }
+    if (loopStatement == null) {
+      generateCreateTempTables();
+    }
+
+    // Invoke the actual executeSql method:
+    sw.print(execMethodName + "(" + txVarName + ", " + statement[0] + ", "
+        + statement[1]);
+
+    generateStatementCallbackParameter();
+
+    sw.println(");");
+    if (loopStatement == null) {
+      generateDropTempTables();
+    }
+  }
+
+  /**
+   * Generates the code preparing the SQL statement and its parameters.
+   * 
+   * <p>
+   * If <code>loopBindings</code> is specified, the statement is prepared once
+   * before the loop over the <code>foreach</code> collection. Only parameters
+   * referring directly to a service method parameter, which cannot change
+   * inside the loop, are bound right away; for the other parameters a slot in
+   * the parameters array is reserved, and the statement binding it is added to
+   * <code>loopBindings</code> for execution inside the loop.
+   * </p>
+   * 
+   * @param asFinal <code>true</code> if the prepared variables must be
+   *          declared <code>final</code>
+   * @param loopBindings the list to add the per-item binding statements to,
+   *          or <code>null</code> if the statement is not prepared before a
+   *          loop
+   * @return the expressions representing the SQL statement and its parameters
+   *         array, in that order
+   * @throws UnableToCompleteException
+   */
+  private String[] generateSqlStatement(boolean asFinal,
+      List<String> loopBindings) throws UnableToCompleteException {
+    String modifier = asFinal ? "final " : "";
     List<String> tokenizedStmt = tokenizeSql(sql);
     if (tokenizedStmt.size() == 0) {
       // No SQL at all. Probably already captured earlier in the process.
@@ -187,22 +1175,30 @@ public abstract class ServiceMethodCreator {
       throw new UnableToCompleteException();
     }
 
+    if (variantsVarName != null) {
+      return generateOptionalSqlStatement(modifier, tokenizedStmt);
+    }
+
     if (tokenizedStmt.size() == 1) {
       // No parameters used in the SQL:
-      sw.print("exec(" + txVarName + ", "
-          + StringUtils.getEscapedString(tokenizedStmt.get(0)) + ", null");
+      return new String[] {
+          StringUtils.getEscapedString(tokenizedStmt.get(0)), "null"};
     } else {
       // At least one parameter used in the SQL:
       String paramsVarName = GeneratorUtils.getVariableName("params",
           service.getParameters());
 
-      StringBuilder prepParamsArrayStatic = new StringBuilder("Object[] ").append(
-          paramsVarName).append(" = {");
-      StringBuilder prepParamsArrayDynamic = new StringBuilder("Object[] ").append(
-          paramsVarName).append(" = new Object[");
+      StringBuilder prepParamsArrayStatic = new StringBuilder(modifier).append(
+          "Object[] ").append(paramsVarName).append(" = {");
+      StringBuilder prepParamsArrayDynamic = new StringBuilder(modifier).append(
+          "Object[] ").append(paramsVarName).append(" = new Object[");
       // Determine amount of parameters (to size the array) and whether dynamic
       // parameters are applied:
       boolean hasDynamics = false;
+      List<String> sizeVarNames = new ArrayList<String>();
+      String sizesVarName = GeneratorUtils.getVariableName("sizes",
+          service.getParameters());
+      generateSizesVariable(sizesVarName);
       for (int i = 0; i < tokenizedStmt.size(); i++) {
         if ((i % 2) == 0) {
           // SQL token:
@@ -218,14 +1214,14 @@ public abstract class ServiceMethodCreator {
             // Aha! We have a collection or array used as input parameter.
             // This means some different statement builder code!
             hasDynamics = true;
-            JType type = GeneratorUtils.findType(expression,
+            int index = sizeVarNames.size();
+            // The number of placeholders to use for the parameter:
+            String sizeVarName = GeneratorUtils.getVariableName("size" + index,
                 service.getParameters());
-            if (type.isArray() != null) {
-              prepParamsArrayDynamic.append(expression + ".length");
-            } else {
-              prepParamsArrayDynamic.append(genUtils.getClassName(DataServiceUtils.class)
-                  + ".getSize(" + expression + ")");
-            }
+            sw.println("int " + sizeVarName + " = " + sizesVarName + "["
+                + index + "];");
+            sizeVarNames.add(sizeVarName);
+            prepParamsArrayDynamic.append(sizeVarName);
           } else {
             prepParamsArrayDynamic.append("1");
             prepParamsArrayStatic.append(expression);
@@ -244,7 +1240,6 @@ public abstract class ServiceMethodCreator {
         prepParamsArrayDynamic.append("];");
         sw.println(prepParamsArrayDynamic.toString());
         sw.println("int " + indexVarName + " = 0;");
-        sw.println("StringBuilder " + sqlVarName + " = new StringBuilder();");
       } else {
         prepParamsArrayStatic.append("};");
         sw.println(prepParamsArrayStatic.toString());
@@ -252,6 +1247,7 @@ public abstract class ServiceMethodCreator {
 
       // Define statement in sqlVarName, and parameters in paramsVarName:
       StringBuilder sqlLiteral = new StringBuilder();
+      int dynamics = 0;
       for (int i = 0; i < tokenizedStmt.size(); i++) {
         String token = tokenizedStmt.get(i);
         if ((i % 2) == 0) {
@@ -260,17 +1256,20 @@ public abstract class ServiceMethodCreator {
         } else {
           // Parameter token:
           if (isDynamicParameter(token)) {
-            sw.println(sqlVarName + ".append("
-                + StringUtils.getEscapedString(sqlLiteral.toString()) + ");");
-            sqlLiteral = new StringBuilder();
-
             sw.println(indexVarName + " = "
                 + genUtils.getClassName(DataServiceUtils.class)
-                + ".addParameter(" + sqlVarName + ", " + paramsVarName + ", "
-                + indexVarName + ", " + token + ");");
+                + ".addParameters(" + paramsVarName + ", " + indexVarName
+                + ", " + token + ", " + sizeVarNames.get(dynamics++) + ");");
           } else {
             sqlLiteral.append("?");
-            if (hasDynamics) {
+            if (loopBindings != null
+                && GeneratorUtils.findType(token, service.getParameters()) == null) {
+              String slotVarName = GeneratorUtils.getVariableName("slot"
+                  + loopBindings.size(), service.getParameters());
+              sw.println("int " + slotVarName + " = " + indexVarName + "++;");
+              loopBindings.add(paramsVarName + "[" + slotVarName + "] = "
+                  + token + ";");
+            } else if (hasDynamics) {
               sw.println(paramsVarName + "[" + indexVarName + "++] = " + token
                   + ";");
             }
@@ -279,25 +1278,97 @@ public abstract class ServiceMethodCreator {
       }
 
       if (hasDynamics) {
-        if (sqlLiteral.length() > 0) {
-          sw.println(sqlVarName + ".append("
-              + StringUtils.getEscapedString(sqlLiteral.toString()) + ");");
+        // The SQL text is taken from the template:
+        List<String> sqlSizes = new ArrayList<String>();
+        for (int i = 0; i < sizeVarNames.size(); i++) {
+          if (tableVarNames.get(i) != null) {
+            sqlSizes.add(tableVarNames.get(i) + " ? "
+                + genUtils.getClassName(SqlTemplate.class) + ".TEMP_TABLE : "
+                + sizeVarNames.get(i));
+          } else {
+            sqlSizes.add(sizeVarNames.get(i));
+          }
+        }
+        String sizes = sqlSizes.get(0);
+        if (sqlSizes.size() > 1) {
+          sizes = "new int[] {" + StringUtils.join(sqlSizes, ", ") + "}";
         }
+        sw.println(modifier + "String " + sqlVarName + " = " + templateVarName
+            + ".getSql(" + sizes + ");");
+        return new String[] {sqlVarName, paramsVarName};
+      } else {
+        // The SQL statement is a String literal:
+        return new String[] {
+            StringUtils.getEscapedString(sqlLiteral.toString()), paramsVarName};
+      }
+    }
+  }
 
-        // Invoke the actual executeSql method:
-        sw.print("exec(" + txVarName + ", " + sqlVarName + ".toString(), "
-            + paramsVarName);
+  /**
+   * Generates the variable holding the number of placeholders of each
+   * collection or array parameter, as determined by the {@link SqlTemplate}.
+   */
+  private void generateSizesVariable(String sizesVarName)
+      throws UnableToCompleteException {
+    List<String> expressions = getDynamicParameters();
+    if (expressions.isEmpty()) {
+      return;
+    }
+    List<String> counts = new ArrayList<String>();
+    for (int i = 0; i < expressions.size(); i++) {
+      if (tableVarNames.get(i) != null) {
+        counts.add(tableVarNames.get(i) + " ? "
+            + genUtils.getClassName(SqlTemplate.class) + ".TEMP_TABLE : "
+            + countVarNames.get(i));
       } else {
-        // Invoke the actual executeSql method with a String literal:
-        sw.print("exec(" + txVarName + ", "
-            + StringUtils.getEscapedString(sqlLiteral.toString()) + ", "
-            + paramsVarName);
+        counts.add(getSizeExpression(expressions.get(i)));
       }
     }
+    sw.println("int[] " + sizesVarName + " = " + templateVarName
+        + ".getSizes(new int[] {" + StringUtils.join(counts, ", ") + "});");
+  }
 
-    generateStatementCallbackParameter();
+  /**
+   * Returns <code>true</code> if the parameters of the SQL statement can be
+   * added to a {@link SQLArguments} array one by one, i.e. if the statement
+   * has parameters, but no collection or array parameters nor optional
+   * clauses.
+   */
+  private boolean isNativeBindable() throws UnableToCompleteException {
+    return templateVarName == null && variantsVarName == null
+        && tokenizeSql(sql).size() > 1;
+  }
 
-    sw.println(");");
+  /**
+   * Generates the statements collecting the parameters of the SQL statement
+   * in a {@link SQLArguments} array. The overloaded <code>add()</code>
+   * methods let the Java compiler pick the unboxed variant for primitive
+   * expressions, so no Object array nor boxed values are created.
+   * 
+   * @return the expressions representing the SQL statement and its arguments
+   *         array, in that order
+   */
+  private String[] generateSqlArguments() throws UnableToCompleteException {
+    List<String> tokenizedStmt = tokenizeSql(sql);
+    String argsVarName = GeneratorUtils.getVariableName("args",
+        service.getParameters());
+    String argsClassName = genUtils.getClassName(SQLArguments.class);
+    sw.println(argsClassName + " " + argsVarName + " = " + argsClassName
+        + ".create();");
+    StringBuilder sqlLiteral = new StringBuilder();
+    for (int i = 0; i < tokenizedStmt.size(); i++) {
+      String token = tokenizedStmt.get(i);
+      if ((i % 2) == 0) {
+        // SQL token:
+        sqlLiteral.append(token);
+      } else {
+        // Parameter token:
+        sqlLiteral.append("?");
+        sw.println(argsVarName + ".add(" + token + ");");
+      }
+    }
+    return new String[] {
+        StringUtils.getEscapedString(sqlLiteral.toString()), argsVarName};
   }
 
   /**
@@ -348,6 +1419,16 @@ public abstract class ServiceMethodCreator {
    */
   private List<String> tokenizeSql(String stmt)
       throws UnableToCompleteException {
+    List<String> result = tokenizedSql.get(stmt);
+    if (result == null) {
+      result = Collections.unmodifiableList(doTokenizeSql(stmt));
+      tokenizedSql.put(stmt, result);
+    }
+    return result;
+  }
+
+  private List<String> doTokenizeSql(String stmt)
+      throws UnableToCompleteException {
     List<String> result = new ArrayList<String>();
     StringBuilder token = new StringBuilder();
     int depth = 0;
@@ -356,8 +1437,11 @@ public abstract class ServiceMethodCreator {
       switch (ch) {
         case '{':
           if (depth == 0) {
-            // End previous token:
-            if (token.length() == 0) {
+            // End previous token. Optional clauses may follow one another
+            // (e.g. '{? AND a = {a}}{? AND b = {b}}'):
+            if (token.length() == 0
+                && (result.isEmpty() || !(stmt.startsWith("?", i + 1)
+                    || isOptionalClause(result.get(result.size() - 1))))) {
               logger.log(TreeLogger.ERROR,
                   "Cannot start SQL statement with a '{...}' parameter, "
                       + "nor can one follow immediately after another "
@@ -419,6 +1503,16 @@ public abstract class ServiceMethodCreator {
    */
   private boolean isDynamicParameter(String expression)
       throws UnableToCompleteException {
+    Boolean result = dynamicParameters.get(expression);
+    if (result == null) {
+      result = doIsDynamicParameter(expression);
+      dynamicParameters.put(expression, result);
+    }
+    return result;
+  }
+
+  private boolean doIsDynamicParameter(String expression)
+      throws UnableToCompleteException {
     JType type = GeneratorUtils.findType(expression, service.getParameters());
     boolean isSuitableDynamic = false;
     String typeParam = null;
@@ -17,28 +17,111 @@
 package com.google.code.gwt.database.rebind;
 
 import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.RowType;
+import com.google.code.gwt.database.client.service.Select;
 import com.google.code.gwt.database.client.service.callback.list.StatementCallbackListCallback;
+import com.google.code.gwt.database.client.service.callback.list.StatementCallbackMappedListCallback;
 import com.google.code.gwt.database.client.service.callback.list.TransactionCallbackListCallback;
+import com.google.code.gwt.database.client.service.callback.list.TransactionCallbackMappedListCallback;
+import com.google.code.gwt.database.client.service.impl.MethodDescriptor.ResultKind;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JClassType;
 
 /**
  * Represents a ServiceMethodCreator for the {@link ListCallback} type.
  * 
+ * <p>
+ * If the row type is a {@link RowType} instead of a JavaScriptObject, the
+ * rows are converted by the mapper generated for that type (see
+ * {@link RowMapperCreator}).
+ * </p>
+ * 
  * @author bguijt
  */
 public class ServiceMethodCreatorListCallback extends ServiceMethodCreator {
 
+  @Override
+  protected ResultKind getResultKind() {
+    return isMapped() || isCopyRows() ? null : ResultKind.LIST;
+  }
+
+  @Override
+  public JClassType getMappedRowType() throws UnableToCompleteException {
+    if (!isMapped()) {
+      return null;
+    }
+    JClassType rowType = getRowType();
+    if (rowType.getAnnotation(RowType.class) == null) {
+      logger.log(TreeLogger.ERROR, "The type parameter of "
+          + genUtils.getClassName(ListCallback.class)
+          + " must be a subtype of "
+          + genUtils.getClassName(JavaScriptObject.class)
+          + ", or a class annotated with @" + RowType.class.getSimpleName());
+      throw new UnableToCompleteException();
+    }
+    return rowType;
+  }
+
   @Override
   protected String getTransactionCallbackClassName()
       throws UnableToCompleteException {
-    return genUtils.getClassName(TransactionCallbackListCallback.class) + "<"
+    Class<?> txCallbackClass = isMapped()
+        ? TransactionCallbackMappedListCallback.class
+        : TransactionCallbackListCallback.class;
+    return genUtils.getClassName(txCallbackClass) + "<"
         + genUtils.getTypeParameter(callback.getType()) + ">";
   }
 
   @Override
   protected void generateStatementCallbackParameter() throws UnableToCompleteException {
-    sw.print(", new "
-        + genUtils.getClassName(StatementCallbackListCallback.class) + "<"
-        + genUtils.getTypeParameter(callback.getType()) + ">(this)");
+    if (isMapped()) {
+      sw.print(", new "
+          + genUtils.getClassName(StatementCallbackMappedListCallback.class)
+          + "<" + genUtils.getTypeParameter(callback.getType())
+          + ">(this, new " + RowMapperCreator.getMapperName(getRowType())
+          + "())");
+    } else {
+      sw.print(", new "
+          + genUtils.getClassName(StatementCallbackListCallback.class) + "<"
+          + genUtils.getTypeParameter(callback.getType()) + ">(this)");
+    }
+  }
+
+  @Override
+  protected void generateTransactionCallbackBody()
+      throws UnableToCompleteException {
+    if (isCopyRows()) {
+      sw.println("@Override");
+      sw.println("protected boolean isCopyRows() {");
+      sw.indentln("return true;");
+      sw.println("}");
+    }
+    super.generateTransactionCallbackBody();
+  }
+
+  /**
+   * Returns <code>true</code> if the rows are copied out of the resultSet at
+   * once - see {@link Select#copyRows()}.
+   */
+  private boolean isCopyRows() {
+    return !isMapped() && query instanceof Select
+        && ((Select) query).copyRows();
+  }
+
+  /**
+   * Returns <code>true</code> if the rows are mapped to a {@link RowType}.
+   */
+  private boolean isMapped() {
+    JClassType rowType = getRowType();
+    return rowType != null
+        && !genUtils.isAssignableToType(rowType, JavaScriptObject.class);
+  }
+
+  private JClassType getRowType() {
+    JClassType[] typeArgs = callback.getType().isParameterized() != null
+        ? callback.getType().isParameterized().getTypeArgs() : null;
+    return typeArgs != null && typeArgs.length > 0 ? typeArgs[0] : null;
   }
 }
@@ -19,6 +19,7 @@ package com.google.code.gwt.database.rebind;
 import com.google.code.gwt.database.client.service.RowIdListCallback;
 import com.google.code.gwt.database.client.service.callback.rowid.StatementCallbackRowIdListCallback;
 import com.google.code.gwt.database.client.service.callback.rowid.TransactionCallbackRowIdListCallback;
+import com.google.code.gwt.database.client.service.impl.MethodDescriptor.ResultKind;
 import com.google.code.gwt.database.client.util.StringUtils;
 import com.google.gwt.core.ext.UnableToCompleteException;
 
@@ -29,6 +30,11 @@ import com.google.gwt.core.ext.UnableToCompleteException;
  */
 public class ServiceMethodCreatorRowIdListCallback extends ServiceMethodCreator {
 
+  @Override
+  protected ResultKind getResultKind() {
+    return ResultKind.ROW_IDS;
+  }
+
   @Override
   protected String getTransactionCallbackClassName()
       throws UnableToCompleteException {
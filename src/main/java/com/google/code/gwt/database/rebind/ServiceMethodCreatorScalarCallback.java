@@ -22,6 +22,7 @@ import com.google.code.gwt.database.client.service.ScalarCallback;
 import com.google.code.gwt.database.client.service.callback.DataServiceStatementCallback;
 import com.google.code.gwt.database.client.service.callback.scalar.ScalarRow;
 import com.google.code.gwt.database.client.service.callback.scalar.TransactionCallbackScalarCallback;
+import com.google.code.gwt.database.client.service.impl.MethodDescriptor.ResultKind;
 import com.google.code.gwt.database.client.util.StringUtils;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
@@ -41,6 +42,24 @@ public class ServiceMethodCreatorScalarCallback extends ServiceMethodCreator {
       Integer.class, Short.class, Byte.class, Float.class, Double.class,
       Boolean.class, String.class};
 
+  /**
+   * Defines the result kind of each type in {@link #ALLOWED_SCALAR_TYPES}.
+   */
+  private static final ResultKind[] SCALAR_RESULT_KINDS = {
+      ResultKind.INTEGER, ResultKind.SHORT, ResultKind.BYTE, ResultKind.FLOAT,
+      ResultKind.DOUBLE, ResultKind.BOOLEAN, ResultKind.STRING};
+
+  @Override
+  protected ResultKind getResultKind() {
+    JType scalarType = getScalarType();
+    for (int i = 0; i < ALLOWED_SCALAR_TYPES.length; i++) {
+      if (GeneratorUtils.isType(scalarType, ALLOWED_SCALAR_TYPES[i])) {
+        return SCALAR_RESULT_KINDS[i];
+      }
+    }
+    return null;
+  }
+
   @Override
   protected String getTransactionCallbackClassName()
       throws UnableToCompleteException {
@@ -19,6 +19,7 @@ package com.google.code.gwt.database.rebind;
 import com.google.code.gwt.database.client.service.VoidCallback;
 import com.google.code.gwt.database.client.service.callback.voyd.StatementCallbackVoidCallback;
 import com.google.code.gwt.database.client.service.callback.voyd.TransactionCallbackVoidCallback;
+import com.google.code.gwt.database.client.service.impl.MethodDescriptor.ResultKind;
 import com.google.code.gwt.database.client.util.StringUtils;
 import com.google.gwt.core.ext.UnableToCompleteException;
 
@@ -29,6 +30,11 @@ import com.google.gwt.core.ext.UnableToCompleteException;
  */
 public class ServiceMethodCreatorVoidCallback extends ServiceMethodCreator {
 
+  @Override
+  protected ResultKind getResultKind() {
+    return ResultKind.VOID;
+  }
+
   @Override
   protected String getTransactionCallbackClassName()
       throws UnableToCompleteException {
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2009 Bart Guijt and others.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.code.gwt.database.rebind;
+
+import java.io.PrintWriter;
+import java.util.regex.Pattern;
+
+import com.google.code.gwt.database.client.service.Broadcast;
+import com.google.code.gwt.database.client.service.CallHandle;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.RowIdListCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.ShardKey;
+import com.google.code.gwt.database.client.service.Shards;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.code.gwt.database.client.service.callback.list.ListCallbackGatherer;
+import com.google.code.gwt.database.client.service.callback.rowid.RowIdListCallbackGatherer;
+import com.google.code.gwt.database.client.service.callback.voyd.VoidCallbackGatherer;
+import com.google.code.gwt.database.client.service.impl.BaseDataService;
+import com.google.code.gwt.database.client.service.impl.ShardedDataService;
+import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.JPackage;
+import com.google.gwt.core.ext.typeinfo.JParameter;
+import com.google.gwt.core.ext.typeinfo.JType;
+import com.google.gwt.user.rebind.ClassSourceFileComposerFactory;
+import com.google.gwt.user.rebind.SourceWriter;
+
+/**
+ * Helper class for the {@link DataServiceGenerator}.
+ * 
+ * <p>
+ * This class is specifically instantiated for a single DataService annotated
+ * with {@link Shards}. It generates the class routing the calls to the
+ * DataService proxies of the shards, which are generated by the
+ * {@link SqlProxyCreator}.
+ * </p>
+ * 
+ * @author bguijt
+ */
+public class ShardedProxyCreator {
+
+  private static final String PROXY_SUFFIX = "_ShardedProxy";
+
+  /**
+   * Matches the clauses of a Select statement which cannot be honoured when
+   * the results of several shards are concatenated.
+   */
+  private static final Pattern ORDERED_SELECT = Pattern.compile(
+      "\\b(ORDER\\s+BY|LIMIT)\\b", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Defines the types suitable as {@link ShardKey}, i.e. with a hashCode which
+   * is equal for equal values.
+   */
+  private static final Class<?>[] ALLOWED_SHARD_KEY_TYPES = {
+      String.class, Integer.class, Long.class, Short.class, Byte.class,
+      Double.class, Float.class};
+
+  private static final String[] IMPORTED_CLASSES = new String[] {
+      BaseDataService.class.getCanonicalName(),
+      ShardedDataService.class.getCanonicalName(),
+      CallHandle.class.getCanonicalName(),
+      VoidCallback.class.getCanonicalName(),
+      ListCallback.class.getCanonicalName(),
+      RowIdListCallback.class.getCanonicalName(),
+      VoidCallbackGatherer.class.getCanonicalName(),
+      ListCallbackGatherer.class.getCanonicalName(),
+      RowIdListCallbackGatherer.class.getCanonicalName()};
+
+  private TreeLogger logger;
+  private GeneratorContext context;
+  private GeneratorUtils genUtils;
+  private JClassType dataService;
+  private int shardCount;
+  private SourceWriter sw;
+
+  public ShardedProxyCreator(TreeLogger logger, GeneratorContext context,
+      JClassType dataService, int shardCount) {
+    this.logger = logger;
+    this.context = context;
+    this.dataService = dataService;
+    this.shardCount = shardCount;
+    this.genUtils = new GeneratorUtils(logger, context, IMPORTED_CLASSES);
+  }
+
+  /**
+   * Generates the routing class.
+   * 
+   * @param shardProxyName the qualified name of the generated DataService
+   *          proxy used for each shard
+   */
+  public String create(String shardProxyName) throws UnableToCompleteException {
+    if (shardCount < 1) {
+      logger.log(TreeLogger.ERROR, "@Shards of "
+          + dataService.getQualifiedSourceName()
+          + " must specify at least one shard");
+      throw new UnableToCompleteException();
+    }
+
+    sw = getSourceWriter();
+    if (sw == null) {
+      // No need to generate, it's already done. Return name of generated class.
+      return getProxyQualifiedName();
+    }
+
+    generateProxyConstructor(genUtils.shortenName(shardProxyName));
+
+    for (JMethod method : dataService.getOverridableMethods()) {
+      if (!GeneratorUtils.isType(method.getEnclosingType(), DataService.class)) {
+        generateProxyServiceMethod(method);
+      }
+    }
+
+    sw.commit(logger);
+
+    return getProxyQualifiedName();
+  }
+
+  /**
+   * Generates the constructor, creating the DataService proxy of each shard.
+   */
+  private void generateProxyConstructor(String shardProxyName) {
+    sw.println("public " + getProxySimpleName() + "() {");
+    sw.indent();
+    sw.println("super(new " + genUtils.getClassName(BaseDataService.class)
+        + "[] {");
+    for (int i = 0; i < shardCount; i++) {
+      sw.indentln("new " + shardProxyName + "()"
+          + (i < shardCount - 1 ? "," : ""));
+    }
+    sw.println("});");
+    sw.outdent();
+    sw.println("}");
+  }
+
+  /**
+   * Generates the method routing the specified service method call to one or
+   * all shards.
+   */
+  private void generateProxyServiceMethod(JMethod service)
+      throws UnableToCompleteException {
+    JParameter[] params = service.getParameters();
+    JParameter callback = params[params.length - 1];
+    JParameter shardKey = getShardKey(service);
+    boolean isReturningHandle = GeneratorUtils.isType(service.getReturnType(),
+        CallHandle.class);
+    String shard = genUtils.getClassName(dataService);
+
+    sw.beginJavaDocComment();
+    sw.print(shardKey != null ? "Executes the call on the shard of '"
+        + shardKey.getName() + "'." : "Executes the call on all shards.");
+    sw.endJavaDocComment();
+    sw.print("public final "
+        + (isReturningHandle ? genUtils.getClassName(CallHandle.class) : "void")
+        + " " + service.getName() + "(");
+    for (int i = 0; i < params.length; i++) {
+      if (i > 0) {
+        sw.print(", ");
+      }
+      sw.print("final " + genUtils.getClassName(params[i].getType()) + " "
+          + params[i].getName());
+    }
+    sw.println(") {");
+    sw.indent();
+
+    if (shardKey != null) {
+      sw.println((isReturningHandle ? "return " : "") + "((" + shard
+          + ") getShard(getShardIndex(" + shardKey.getName() + ")))."
+          + service.getName() + "(" + getArguments(params, callback.getName())
+          + ");");
+    } else {
+      if (isReturningHandle) {
+        logger.log(TreeLogger.ERROR, "Method " + service.getName()
+            + " has no @ShardKey parameter, so it is executed on all shards"
+            + " and cannot return a single "
+            + genUtils.getClassName(CallHandle.class)
+            + ". Use a CallHandle parameter instead");
+        throw new UnableToCompleteException();
+      }
+      checkBroadcast(service);
+      String gathererType = getGathererType(service, callback);
+      String gatherer = GeneratorUtils.getVariableName("gatherer", params);
+      String index = GeneratorUtils.getVariableName("shard", params);
+      sw.println(gathererType + " " + gatherer + " = new " + gathererType + "("
+          + callback.getName() + ", getShardCount());");
+      sw.println("for (int " + index + " = 0; " + index
+          + " < getShardCount(); " + index + "++) {");
+      sw.indentln("((" + shard + ") getShard(" + index + "))."
+          + service.getName() + "("
+          + getArguments(params, gatherer + ".getCallback(" + index + ")")
+          + ");");
+      sw.println("}");
+    }
+
+    // ends service method
+    sw.outdent();
+    sw.println("}");
+  }
+
+  /**
+   * Returns the parameter annotated with {@link ShardKey}, or
+   * <code>null</code> if there is none.
+   */
+  private JParameter getShardKey(JMethod service)
+      throws UnableToCompleteException {
+    JParameter shardKey = null;
+    for (JParameter param : service.getParameters()) {
+      if (param.getAnnotation(ShardKey.class) != null) {
+        if (shardKey != null) {
+          logger.log(TreeLogger.ERROR, "Method " + service.getName()
+              + " has more than one @ShardKey parameter");
+          throw new UnableToCompleteException();
+        }
+        shardKey = param;
+      }
+    }
+    if (shardKey != null && !isAllowedShardKeyType(shardKey.getType())) {
+      logger.log(TreeLogger.ERROR, "@ShardKey parameter " + shardKey.getName()
+          + " of method " + service.getName()
+          + " must be a String or a numeric type");
+      throw new UnableToCompleteException();
+    }
+    return shardKey;
+  }
+
+  private boolean isAllowedShardKeyType(JType type) {
+    if (type.isPrimitive() != null) {
+      type = context.getTypeOracle().findType(
+          type.isPrimitive().getQualifiedBoxedSourceName());
+    }
+    for (Class<?> allowed : ALLOWED_SHARD_KEY_TYPES) {
+      if (GeneratorUtils.isType(type, allowed)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Asserts that the specified service method, which has no {@link ShardKey},
+   * can be executed on all shards.
+   */
+  private void checkBroadcast(JMethod service)
+      throws UnableToCompleteException {
+    if (service.getAnnotation(Broadcast.class) != null) {
+      return;
+    }
+    Update update = service.getAnnotation(Update.class);
+    if (update != null) {
+      logger.log(TreeLogger.ERROR, "Method " + service.getName()
+          + " has no @ShardKey parameter, so it would write into all shards."
+          + " Add a @ShardKey parameter, or annotate the method with @"
+          + Broadcast.class.getSimpleName());
+      throw new UnableToCompleteException();
+    }
+    Select select = service.getAnnotation(Select.class);
+    String sql = select.value().length() > 0 ? select.value() : select.sql();
+    if (ORDERED_SELECT.matcher(sql).find()) {
+      logger.log(TreeLogger.ERROR, "Method " + service.getName()
+          + " has no @ShardKey parameter, so the results of all shards are"
+          + " concatenated, which ignores its ORDER BY and LIMIT across"
+          + " shards. Add a @ShardKey parameter, or annotate the method with @"
+          + Broadcast.class.getSimpleName());
+      throw new UnableToCompleteException();
+    }
+  }
+
+  /**
+   * Returns the type of the {@link com.google.code.gwt.database.client.service.callback.CallbackGatherer}
+   * merging the results of the specified callback.
+   */
+  private String getGathererType(JMethod service, JParameter callback)
+      throws UnableToCompleteException {
+    if (GeneratorUtils.isType(callback.getType(), VoidCallback.class)) {
+      return genUtils.getClassName(VoidCallbackGatherer.class);
+    }
+    if (GeneratorUtils.isType(callback.getType(), RowIdListCallback.class)) {
+      return genUtils.getClassName(RowIdListCallbackGatherer.class);
+    }
+    if (GeneratorUtils.isType(callback.getType(), ListCallback.class)) {
+      return genUtils.getClassName(ListCallbackGatherer.class) + "<"
+          + genUtils.getTypeParameter(callback.getType()) + ">";
+    }
+    logger.log(TreeLogger.ERROR, "Method " + service.getName()
+        + " has no @ShardKey parameter, so it is executed on all shards, but"
+        + " the results of a " + callback.getType().getSimpleSourceName()
+        + " cannot be merged");
+    throw new UnableToCompleteException();
+  }
+
+  /**
+   * Returns the parameters of a service method as arguments, with the
+   * specified expression as callback.
+   */
+  private String getArguments(JParameter[] params, String callbackExpression) {
+    StringBuilder args = new StringBuilder();
+    for (int i = 0; i < params.length - 1; i++) {
+      args.append(params[i].getName()).append(", ");
+    }
+    return args.append(callbackExpression).toString();
+  }
+
+  /**
+   * Returns a SourceWriter which is prepared to write the class' body.
+   */
+  private SourceWriter getSourceWriter() {
+    JPackage serviceIntfPkg = dataService.getPackage();
+    String packageName = serviceIntfPkg == null ? "" : serviceIntfPkg.getName();
+    PrintWriter printWriter = context.tryCreate(logger, packageName,
+        getProxySimpleName());
+
+    if (printWriter == null) {
+      // Proxy already exists.
+      return null;
+    }
+
+    ClassSourceFileComposerFactory composerFactory = new ClassSourceFileComposerFactory(
+        packageName, getProxySimpleName());
+
+    for (String imp : IMPORTED_CLASSES) {
+      composerFactory.addImport(imp);
+    }
+
+    composerFactory.setSuperclass(genUtils.getClassName(ShardedDataService.class));
+    composerFactory.addImplementedInterface(genUtils.getClassName(dataService));
+
+    composerFactory.setJavaDocCommentForClass("Generated by {@link "
+        + genUtils.getClassName(getClass()) + "}");
+
+    return composerFactory.createSourceWriter(context, printWriter);
+  }
+
+  /**
+   * Returns the fully qualified name of the generated class.
+   */
+  private String getProxyQualifiedName() {
+    return (dataService.getPackage() == null ? ""
+        : dataService.getPackage().getName() + ".")
+        + getProxySimpleName();
+  }
+
+  /**
+   * Returns the name of the generated class.
+   */
+  private String getProxySimpleName() {
+    return dataService.getName().replace('.', '_') + PROXY_SUFFIX;
+  }
+}
@@ -18,22 +18,41 @@ package com.google.code.gwt.database.rebind;
 
 import java.io.PrintWriter;
 import java.lang.annotation.Annotation;
+import java.util.Map;
+import java.util.TreeMap;
 
 import com.google.code.gwt.database.client.Database;
 import com.google.code.gwt.database.client.DatabaseException;
+import com.google.code.gwt.database.client.SQLArguments;
 import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.service.CallHandle;
 import com.google.code.gwt.database.client.service.Callback;
+import com.google.code.gwt.database.client.service.ColumnsCallback;
+import com.google.code.gwt.database.client.service.CoalesceReads;
+import com.google.code.gwt.database.client.service.Compact;
 import com.google.code.gwt.database.client.service.Connection;
 import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.GroupCommit;
+import com.google.code.gwt.database.client.service.InListThreshold;
+import com.google.code.gwt.database.client.service.Lane;
 import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.MaxPending;
+import com.google.code.gwt.database.client.service.OverflowPolicy;
+import com.google.code.gwt.database.client.service.Retry;
 import com.google.code.gwt.database.client.service.RowIdListCallback;
 import com.google.code.gwt.database.client.service.ScalarCallback;
 import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Shards;
 import com.google.code.gwt.database.client.service.Update;
 import com.google.code.gwt.database.client.service.VoidCallback;
 import com.google.code.gwt.database.client.service.callback.DataServiceStatementCallback;
+import com.google.code.gwt.database.client.service.callback.columns.StatementCallbackColumnsCallback;
+import com.google.code.gwt.database.client.service.callback.columns.TransactionCallbackColumnsCallback;
+import com.google.code.gwt.database.client.service.callback.list.RowMapper;
 import com.google.code.gwt.database.client.service.callback.list.StatementCallbackListCallback;
+import com.google.code.gwt.database.client.service.callback.list.StatementCallbackMappedListCallback;
 import com.google.code.gwt.database.client.service.callback.list.TransactionCallbackListCallback;
+import com.google.code.gwt.database.client.service.callback.list.TransactionCallbackMappedListCallback;
 import com.google.code.gwt.database.client.service.callback.rowid.StatementCallbackRowIdListCallback;
 import com.google.code.gwt.database.client.service.callback.rowid.TransactionCallbackRowIdListCallback;
 import com.google.code.gwt.database.client.service.callback.scalar.TransactionCallbackScalarCallback;
@@ -41,6 +60,9 @@ import com.google.code.gwt.database.client.service.callback.voyd.StatementCallba
 import com.google.code.gwt.database.client.service.callback.voyd.TransactionCallbackVoidCallback;
 import com.google.code.gwt.database.client.service.impl.BaseDataService;
 import com.google.code.gwt.database.client.service.impl.DataServiceUtils;
+import com.google.code.gwt.database.client.service.impl.MethodDescriptor;
+import com.google.code.gwt.database.client.service.impl.RetryPolicy;
+import com.google.code.gwt.database.client.service.impl.SqlTemplate;
 import com.google.code.gwt.database.client.util.StringUtils;
 import com.google.gwt.core.ext.Generator;
 import com.google.gwt.core.ext.GeneratorContext;
@@ -50,6 +72,7 @@ import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.core.ext.typeinfo.JMethod;
 import com.google.gwt.core.ext.typeinfo.JPackage;
 import com.google.gwt.core.ext.typeinfo.JParameter;
+import com.google.gwt.core.ext.typeinfo.JPrimitiveType;
 import com.google.gwt.dev.util.Util;
 import com.google.gwt.user.rebind.ClassSourceFileComposerFactory;
 import com.google.gwt.user.rebind.SourceWriter;
@@ -69,20 +92,32 @@ public class SqlProxyCreator {
 
   private static final String[] IMPORTED_CLASSES = new String[] {
       Database.class.getCanonicalName(),
-      SQLTransaction.class.getCanonicalName(), BaseDataService.class.getName(),
+      SQLTransaction.class.getCanonicalName(),
+      SQLArguments.class.getCanonicalName(), BaseDataService.class.getName(),
       DataServiceUtils.class.getCanonicalName(),
       VoidCallback.class.getCanonicalName(),
       ListCallback.class.getCanonicalName(),
       ScalarCallback.class.getCanonicalName(),
       RowIdListCallback.class.getCanonicalName(),
+      ColumnsCallback.class.getCanonicalName(),
       DataServiceStatementCallback.class.getCanonicalName(),
       StatementCallbackVoidCallback.class.getCanonicalName(),
       StatementCallbackListCallback.class.getCanonicalName(),
       StatementCallbackRowIdListCallback.class.getCanonicalName(),
+      StatementCallbackColumnsCallback.class.getCanonicalName(),
+      StatementCallbackMappedListCallback.class.getCanonicalName(),
       TransactionCallbackVoidCallback.class.getCanonicalName(),
       TransactionCallbackScalarCallback.class.getCanonicalName(),
       TransactionCallbackListCallback.class.getCanonicalName(),
       TransactionCallbackRowIdListCallback.class.getCanonicalName(),
+      TransactionCallbackColumnsCallback.class.getCanonicalName(),
+      TransactionCallbackMappedListCallback.class.getCanonicalName(),
+      RowMapper.class.getCanonicalName(),
+      Lane.class.getCanonicalName(), OverflowPolicy.class.getCanonicalName(),
+      CallHandle.class.getCanonicalName(),
+      RetryPolicy.class.getCanonicalName(),
+      SqlTemplate.class.getCanonicalName(),
+      MethodDescriptor.class.getCanonicalName(),
       DatabaseException.class.getCanonicalName()};
 
   private TreeLogger logger;
@@ -91,6 +126,22 @@ public class SqlProxyCreator {
   private JClassType dataService;
   private SourceWriter sw;
 
+  /**
+   * The number of service methods generated so far, used to name their
+   * fields.
+   */
+  private int methodCount = 0;
+
+  /**
+   * The number of service methods generated in {@link Compact} form.
+   */
+  private int compactCount = 0;
+
+  /**
+   * The row types mapped by the service methods generated so far, by name.
+   */
+  private Map<String, JClassType> mappedRowTypes = new TreeMap<String, JClassType>();
+
   /**
    * <code>true</code> if the dataService directly extends DataService,
    * <code>false</code> otherwise.
@@ -116,12 +167,22 @@ public class SqlProxyCreator {
     if (isBaseType) {
       generateProxyOpenDatabaseMethod();
       generateProxyGetDatabaseDetailsMethod();
+      generateProxyGetConnectionMethods();
     }
 
     // Generate service methods for each defined interface method:
     for (JMethod method : dataService.getMethods()) {
       generateProxyServiceMethod(method);
     }
+    RowMapperCreator mapperCreator = new RowMapperCreator(logger, genUtils, sw);
+    for (JClassType rowType : mappedRowTypes.values()) {
+      mapperCreator.generate(rowType);
+    }
+    if (dataService.getAnnotation(Compact.class) != null) {
+      logger.log(TreeLogger.INFO, "Generated " + compactCount + " of "
+          + methodCount + " service methods of "
+          + dataService.getQualifiedSourceName() + " in compact form");
+    }
 
     sw.commit(logger);
 
@@ -131,10 +192,51 @@ public class SqlProxyCreator {
   /**
    * Generates the constructor.
    */
-  private void generateProxyConstructor() {
+  private void generateProxyConstructor() throws UnableToCompleteException {
     sw.println("public " + getProxySimpleName() + "() {");
     sw.indent();
-    sw.println("// default empty constructor");
+    GroupCommit groupCommit = dataService.getAnnotation(GroupCommit.class);
+    CoalesceReads coalesceReads = dataService.getAnnotation(CoalesceReads.class);
+    if (groupCommit != null) {
+      sw.println("setGroupCommit(" + groupCommit.delay() + ", "
+          + groupCommit.maxSize() + ");");
+    }
+    if (coalesceReads != null) {
+      sw.println("setCoalesceReads(" + coalesceReads.maxSize() + ");");
+    }
+    MaxPending maxPending = dataService.getAnnotation(MaxPending.class);
+    if (maxPending != null) {
+      sw.println("setMaxPending(" + maxPending.value() + ", "
+          + genUtils.getClassName(OverflowPolicy.class) + "."
+          + maxPending.overflow().name() + ");");
+    }
+    Retry retry = dataService.getAnnotation(Retry.class);
+    if (retry != null) {
+      StringBuilder codes = new StringBuilder();
+      for (int code : retry.codes()) {
+        codes.append(codes.length() > 0 ? ", " : "").append(code);
+      }
+      sw.println("setRetryPolicy(new "
+          + genUtils.getClassName(RetryPolicy.class) + "(new int[] {" + codes
+          + "}, " + retry.maxAttempts() + ", " + retry.delay() + ", "
+          + retry.maxDelay() + "));");
+    }
+    InListThreshold inListThreshold = dataService.getAnnotation(InListThreshold.class);
+    if (inListThreshold != null) {
+      if (inListThreshold.value() < 0
+          || inListThreshold.value() > SqlTemplate.MAX_PARAMETERS) {
+        logger.log(TreeLogger.ERROR, "The @InListThreshold of "
+            + dataService.getName() + " must be between 0 and "
+            + SqlTemplate.MAX_PARAMETERS + ", SQLite binds no more "
+            + "parameters to a single statement");
+        throw new UnableToCompleteException();
+      }
+      sw.println("setInListThreshold(" + inListThreshold.value() + ");");
+    }
+    if (groupCommit == null && coalesceReads == null && maxPending == null
+        && retry == null && inListThreshold == null) {
+      sw.println("// default empty constructor");
+    }
     sw.outdent();
     sw.println("}");
   }
@@ -150,8 +252,10 @@ public class SqlProxyCreator {
     sw.println("public final " + genUtils.getClassName(Database.class)
         + " openDatabase() throws "
         + genUtils.getClassName(DatabaseException.class) + " {");
+    String name = isSharded() ? "getConnectionName()" : "\""
+        + Generator.escape(con.name()) + "\"";
     sw.indentln("return " + genUtils.getClassName(Database.class)
-        + ".openDatabase(\"" + Generator.escape(con.name()) + "\", \""
+        + ".openDatabase(" + name + ", \""
         + Generator.escape(con.version()) + "\", \""
         + Generator.escape(con.description()) + "\", " + con.maxsize() + ");");
     sw.println("}");
@@ -168,10 +272,39 @@ public class SqlProxyCreator {
     sw.print("Returns the <code>" + toReturn + "</code> string.");
     sw.endJavaDocComment();
     sw.println("public final String getDatabaseDetails() {");
-    sw.indentln("return \"" + toReturn + "\";");
+    if (isSharded()) {
+      sw.indentln("return \"'\" + getConnectionName() + \"' version "
+          + Generator.escape(con.version()) + "\";");
+    } else {
+      sw.indentln("return \"" + toReturn + "\";");
+    }
+    sw.println("}");
+  }
+
+  /**
+   * Generates the {@link BaseDataService#getConnectionName()} and
+   * {@link BaseDataService#getConnectionVersion()} methods.
+   */
+  private void generateProxyGetConnectionMethods() {
+    Connection con = dataService.getAnnotation(Connection.class);
+    sw.println("protected final String getConnectionName() {");
+    sw.indentln("return \"" + Generator.escape(con.name())
+        + (isSharded() ? "_\" + getShardIndex();" : "\";"));
+    sw.println("}");
+    sw.println("protected final String getConnectionVersion() {");
+    sw.indentln("return \"" + Generator.escape(con.version()) + "\";");
     sw.println("}");
   }
 
+  /**
+   * Returns <code>true</code> if the DataService is annotated with
+   * {@link Shards}, in which case the generated class represents a single
+   * shard.
+   */
+  private boolean isSharded() {
+    return dataService.getAnnotation(Shards.class) != null;
+  }
+
   /**
    * Generates the proxy method implementing the specified service.
    */
@@ -192,6 +325,22 @@ public class SqlProxyCreator {
           + ": @Select or @Update annotation has no SQL statement");
       throw new UnableToCompleteException();
     }
+    if (update != null && update.bulk() && StringUtils.isEmpty(update.foreach())) {
+      logger.log(TreeLogger.ERROR, service.getName()
+          + ": @Update(bulk=true) requires the 'foreach' attribute");
+      throw new UnableToCompleteException();
+    }
+    if (update != null && update.chunkSize() < 0) {
+      logger.log(TreeLogger.ERROR, service.getName()
+          + ": @Update(chunkSize) must not be negative");
+      throw new UnableToCompleteException();
+    }
+    if (update != null && update.chunkSize() > 0
+        && StringUtils.isEmpty(update.foreach())) {
+      logger.log(TreeLogger.ERROR, service.getName()
+          + ": @Update(chunkSize) requires the 'foreach' attribute");
+      throw new UnableToCompleteException();
+    }
     JParameter[] params = service.getParameters();
     if (params.length == 0) {
       logger.log(TreeLogger.ERROR, "Method " + service.getName()
@@ -206,9 +355,35 @@ public class SqlProxyCreator {
       throw new UnableToCompleteException();
     }
 
+    boolean isReturningHandle = GeneratorUtils.isType(service.getReturnType(),
+        CallHandle.class);
+    if (!isReturningHandle
+        && service.getReturnType().isPrimitive() != JPrimitiveType.VOID) {
+      logger.log(TreeLogger.ERROR, "Method " + service.getName()
+          + " must return either void or "
+          + genUtils.getClassName(CallHandle.class));
+      throw new UnableToCompleteException();
+    }
+
+    // Depending on the callback type, create a service method body:
+    ServiceMethodCreator creator = update != null ? createExecuteSqlCreator(
+        service, getSql(update), update.foreach(), update)
+        : createExecuteSqlCreator(service, getSql(select), null, select);
+
+    creator.generateFields(methodCount++);
+    JClassType rowType = creator.getMappedRowType();
+    if (rowType != null) {
+      mappedRowTypes.put(rowType.getQualifiedSourceName(), rowType);
+    }
+    if (creator.isCompact()) {
+      compactCount++;
+    }
+
     generateProxyServiceMethodJavadoc(service);
 
-    sw.print("public final void " + service.getName() + "(");
+    sw.print("public final "
+        + (isReturningHandle ? genUtils.getClassName(CallHandle.class) : "void")
+        + " " + service.getName() + "(");
     for (int i = 0; i < params.length; i++) {
       if (i > 0) {
         sw.print(", ");
@@ -219,11 +394,6 @@ public class SqlProxyCreator {
     sw.println(") {");
     sw.indent();
 
-    // Depending on the callback type, create a service method body:
-    ServiceMethodCreator creator = update != null ? createExecuteSqlCreator(
-        service, getSql(update), update.foreach(), update)
-        : createExecuteSqlCreator(service, getSql(select), null, select);
-
     creator.generateServiceMethodBody();
 
     // ends service method
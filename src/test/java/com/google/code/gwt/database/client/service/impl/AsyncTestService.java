@@ -0,0 +1,15 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.RunAsync;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+
+@Connection(name = "servicetest", version = "1", description = "Service test", maxsize = 10000)
+@RunAsync
+public interface AsyncTestService extends DataService {
+
+  @Update("INSERT INTO items (name) VALUES ({name})")
+  void insertItem(String name, VoidCallback callback);
+}
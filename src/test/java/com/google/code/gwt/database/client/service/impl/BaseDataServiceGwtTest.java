@@ -0,0 +1,660 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.ResultColumns;
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.service.CallCancelledException;
+import com.google.code.gwt.database.client.service.CallHandle;
+import com.google.code.gwt.database.client.service.ColumnsCallback;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.OverflowPolicy;
+import com.google.code.gwt.database.client.service.ProgressListener;
+import com.google.code.gwt.database.client.service.RowIdListCallback;
+import com.google.code.gwt.database.client.service.UnitOfWork;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JsArrayMixed;
+import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class BaseDataServiceGwtTest extends GWTTestCase {
+
+  private static class Result implements VoidCallback {
+    private int successes;
+    private DataServiceException failure;
+
+    public void onSuccess() {
+      successes++;
+    }
+
+    public void onFailure(DataServiceException error) {
+      failure = error;
+    }
+  }
+
+  private static class Rows implements ListCallback<GenericRow> {
+    private int successes;
+    private List<GenericRow> result;
+    private DataServiceException failure;
+
+    public void onSuccess(List<GenericRow> result) {
+      successes++;
+      this.result = result;
+    }
+
+    public void onFailure(DataServiceException error) {
+      failure = error;
+    }
+  }
+
+  private static class Columns implements ColumnsCallback {
+    private ResultColumns columns;
+    private DataServiceException failure;
+
+    public void onSuccess(ResultColumns columns) {
+      this.columns = columns;
+    }
+
+    public void onFailure(DataServiceException error) {
+      failure = error;
+    }
+  }
+
+  private static class ItemRows implements ListCallback<ItemRow> {
+    private List<ItemRow> result;
+    private DataServiceException failure;
+
+    public void onSuccess(List<ItemRow> result) {
+      this.result = result;
+    }
+
+    public void onFailure(DataServiceException error) {
+      failure = error;
+    }
+  }
+
+  private static class RowIds implements RowIdListCallback, ProgressListener {
+    private List<Integer> rowIds;
+    private int completed;
+    private int total;
+    private DataServiceException failure;
+
+    public void onSuccess(List<Integer> rowIds) {
+      this.rowIds = rowIds;
+    }
+
+    public void onProgress(int completed, int total) {
+      this.completed = completed;
+      this.total = total;
+    }
+
+    public void onFailure(DataServiceException error) {
+      failure = error;
+    }
+  }
+
+  private TestService service;
+  private FakeDatabase db;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() {
+    FakeDatabase.install();
+    service = GWT.create(TestService.class);
+    db = getService().getDatabase().cast();
+  }
+
+  private BaseDataService getService() {
+    return (BaseDataService) service;
+  }
+
+  /**
+   * Executes the specified command after the current event loop tick, and
+   * finishes the test when it is done.
+   */
+  private void finishDeferred(final ScheduledCommand command) {
+    delayTestFinish(5000);
+    Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+      public void execute() {
+        command.execute();
+        finishTest();
+      }
+    });
+  }
+
+  public void testGroupCommit() {
+    getService().setGroupCommit(0, 10);
+    final int statements = db.getStatements().length();
+    final Result first = new Result();
+    final Result second = new Result();
+    service.insertItem("a", first);
+    service.insertItem("b", second);
+    assertEquals(0, db.getPendingCount());
+
+    finishDeferred(new ScheduledCommand() {
+      public void execute() {
+        assertEquals(1, db.getPendingCount());
+        db.complete();
+        assertEquals(statements + 2, db.getStatements().length());
+        assertEquals(1, first.successes);
+        assertEquals(1, second.successes);
+        getService().setGroupCommit(-1, 0);
+      }
+    });
+  }
+
+  public void testGroupCommitStartsFullGroup() {
+    getService().setGroupCommit(0, 2);
+    Result result = new Result();
+    service.insertItem("a", result);
+    service.insertItem("b", result);
+    assertEquals(1, db.getPendingCount());
+    service.insertItem("c", result);
+    getService().setGroupCommit(-1, 0);
+
+    assertEquals(2, db.completeAll());
+    assertEquals(3, result.successes);
+    assertNull(result.failure);
+  }
+
+  public void testCoalesceReads() {
+    getService().setCoalesceReads(10);
+    final Rows first = new Rows();
+    final Rows second = new Rows();
+    service.getItems("a", first);
+    service.getItems("b", second);
+    assertEquals(0, db.getPendingCount());
+
+    finishDeferred(new ScheduledCommand() {
+      public void execute() {
+        assertEquals(1, db.getPendingCount());
+        assertTrue(db.isReadOnly());
+        db.complete();
+        assertEquals(1, first.successes);
+        assertEquals(0, first.result.size());
+        assertEquals(1, second.successes);
+        assertNull(second.failure);
+        getService().setCoalesceReads(0);
+      }
+    });
+  }
+
+  public void testSingleFlight() {
+    Rows first = new Rows();
+    Rows second = new Rows();
+    Rows other = new Rows();
+    service.findItems("a", first);
+    service.findItems("a", second);
+    service.findItems("b", other);
+
+    assertEquals(2, db.completeAll());
+    assertEquals(1, first.successes);
+    assertEquals(1, second.successes);
+    assertSame(first.result, second.result);
+    assertEquals(1, other.successes);
+
+    // The completed call is no longer shared:
+    service.findItems("a", first);
+    assertEquals(1, db.getPendingCount());
+    db.complete();
+    assertEquals(2, first.successes);
+    assertEquals(1, second.successes);
+  }
+
+  public void testMaxPendingQueuesCalls() {
+    getService().setMaxPending(1, OverflowPolicy.QUEUE);
+    Result result = new Result();
+    service.insertItem("a", result);
+    service.insertItem("b", result);
+    service.insertItem("c", result);
+    assertEquals(3, getService().getPendingCount());
+    assertEquals(1, db.getPendingCount());
+
+    db.complete();
+    assertEquals(1, result.successes);
+    assertEquals(2, getService().getPendingCount());
+    assertEquals(1, db.getPendingCount());
+
+    getService().setMaxPending(0, OverflowPolicy.QUEUE);
+    assertEquals(2, db.completeAll());
+    assertEquals(3, result.successes);
+    assertEquals(0, getService().getPendingCount());
+  }
+
+  public void testMaxPendingRejectsCalls() {
+    getService().setMaxPending(1, OverflowPolicy.REJECT);
+    Result first = new Result();
+    Result second = new Result();
+    service.insertItem("a", first);
+    service.insertItem("b", second);
+    assertNotNull(second.failure);
+    assertEquals(1, getService().getPendingCount());
+
+    db.complete();
+    assertEquals(1, first.successes);
+    assertEquals(0, second.successes);
+    getService().setMaxPending(0, OverflowPolicy.QUEUE);
+  }
+
+  public void testCancelledCallSkipsStatements() {
+    int statements = db.getStatements().length();
+    Result result = new Result();
+    CallHandle handle = service.addItem("a", result);
+    handle.cancel();
+
+    db.complete();
+    assertEquals(statements, db.getStatements().length());
+    assertEquals(0, result.successes);
+    assertTrue(result.failure instanceof CallCancelledException);
+    assertFalse(((CallCancelledException) result.failure).isTimeout());
+  }
+
+  public void testExpiredCallSkipsStatements() {
+    int statements = db.getStatements().length();
+    Result expired = new Result();
+    Result pending = new Result();
+    CallHandle handle = new CallHandle();
+    service.addItem("a", handle, expired);
+    service.addItem("b", new CallHandle(), pending);
+    handle.setDeadline(0);
+
+    assertEquals(2, db.completeAll());
+    assertEquals(statements + 1, db.getStatements().length());
+    assertTrue(((CallCancelledException) expired.failure).isTimeout());
+    assertEquals(1, pending.successes);
+  }
+
+  public void testRetryTransientFailure() {
+    getService().setRetryPolicy(new RetryPolicy(
+        new int[] {SQLError.TIMEOUT_ERR}, 2, 0, 0));
+    final int retries = getService().getRetryCount("insertItem");
+    final Result result = new Result();
+    service.insertItem("a", result);
+    db.fail(SQLError.TIMEOUT_ERR, "database locked");
+    assertNull(result.failure);
+
+    finishDeferred(new ScheduledCommand() {
+      public void execute() {
+        assertEquals(1, db.getPendingCount());
+        db.complete();
+        assertEquals(1, result.successes);
+        assertNull(result.failure);
+        assertEquals(retries + 1, getService().getRetryCount("insertItem"));
+        getService().setRetryPolicy(null);
+      }
+    });
+  }
+
+  public void testRetryGivesUpOnOtherErrors() {
+    getService().setRetryPolicy(new RetryPolicy(
+        new int[] {SQLError.TIMEOUT_ERR}, 2, 0, 0));
+    Result result = new Result();
+    service.insertItem("a", result);
+    db.fail(SQLError.CONSTRAINT_ERR, "constraint failed");
+    assertNotNull(result.failure);
+    assertEquals(0, db.getPendingCount());
+    getService().setRetryPolicy(null);
+  }
+
+  public void testRunInTransaction() {
+    int statements = db.getStatements().length();
+    final Result first = new Result();
+    final Result second = new Result();
+    Result unit = new Result();
+    getService().runInTransaction(new UnitOfWork() {
+      public void execute(SQLTransaction tx) {
+        service.insertItem("a", first);
+        service.insertItem("b", second);
+        tx.executeSql("DELETE FROM items", new Object[0]);
+      }
+    }, unit);
+    assertEquals(1, db.getPendingCount());
+
+    db.complete();
+    assertEquals(0, db.getPendingCount());
+    assertEquals(statements + 3, db.getStatements().length());
+    assertEquals(1, first.successes);
+    assertEquals(1, second.successes);
+    assertEquals(1, unit.successes);
+  }
+
+  public void testRunInTransactionFailsAllCalls() {
+    final Result first = new Result();
+    final Result second = new Result();
+    Result unit = new Result();
+    getService().runInTransaction(new UnitOfWork() {
+      public void execute(SQLTransaction tx) {
+        service.insertItem("a", first);
+        service.insertItem("b", second);
+      }
+    }, unit);
+
+    db.fail(SQLError.CONSTRAINT_ERR, "constraint failed");
+    assertNotNull(first.failure);
+    assertNotNull(second.failure);
+    assertNotNull(unit.failure);
+    assertEquals(0, first.successes + second.successes + unit.successes);
+  }
+
+  public void testServicesShareConnection() {
+    TestService same = GWT.create(TestService.class);
+    assertSame(getService().getConnection(),
+        ((BaseDataService) same).getConnection());
+    assertSame(db, FakeDatabase.get("servicetest"));
+
+    int statements = db.getStatements().length();
+    Result result = new Result();
+    same.insertItem("a", result);
+    db.complete();
+    assertEquals(statements + 1, db.getStatements().length());
+    assertEquals(1, result.successes);
+  }
+
+  public void testConnectionPerDatabaseName() {
+    OtherTestService other = GWT.create(OtherTestService.class);
+    BaseDataService otherService = (BaseDataService) other;
+    assertNotSame(getService().getDatabase(), otherService.getDatabase());
+    assertNotSame(getService().getTransactionScheduler(),
+        otherService.getTransactionScheduler());
+
+    FakeDatabase otherDb = FakeDatabase.get("othertest");
+    int statements = db.getStatements().length();
+    Result result = new Result();
+    other.insertOther("a", result);
+    assertEquals(0, db.getPendingCount());
+    otherDb.complete();
+    assertEquals(1, result.successes);
+    assertEquals("INSERT INTO others (name) VALUES (?)",
+        otherDb.getStatements().get(otherDb.getStatements().length() - 1));
+    assertEquals(statements, db.getStatements().length());
+  }
+
+  public void testBulkInsert() {
+    int statements = db.getStatements().length();
+    Result result = new Result();
+    service.importItems(Arrays.asList("a", "b", "c"), result);
+
+    db.complete();
+    assertEquals(statements + 1, db.getStatements().length());
+    assertEquals("INSERT INTO items (name) VALUES (?),(?),(?)",
+        db.getStatements().get(statements));
+    assertEquals(1, result.successes);
+  }
+
+  public void testChunkedInsert() {
+    final int statements = db.getStatements().length();
+    final RowIds result = new RowIds();
+    service.insertItems(Arrays.asList("a", "b", "c"), result);
+    assertEquals(1, db.getPendingCount());
+
+    db.complete();
+    assertEquals(statements + 2, db.getStatements().length());
+    assertEquals(2, result.completed);
+    assertEquals(3, result.total);
+    assertNull(result.rowIds);
+    // The next chunk starts after yielding to the event loop:
+    assertEquals(0, db.getPendingCount());
+
+    finishDeferred(new ScheduledCommand() {
+      public void execute() {
+        assertEquals(1, db.getPendingCount());
+        db.complete();
+        assertEquals(statements + 3, db.getStatements().length());
+        assertEquals(3, result.completed);
+        assertEquals(3, result.rowIds.size());
+        assertNull(result.failure);
+      }
+    });
+  }
+
+  public void testChunkedInsertCopiesItems() {
+    final int statements = db.getStatements().length();
+    final RowIds result = new RowIds();
+    final List<String> names = new ArrayList<String>(Arrays.asList("a", "b",
+        "c"));
+    service.insertItems(names, result);
+    db.complete();
+    names.set(2, "changed");
+    names.add("added");
+
+    finishDeferred(new ScheduledCommand() {
+      public void execute() {
+        db.complete();
+        assertEquals(statements + 3, db.getStatements().length());
+        assertEquals("c", db.getArguments(statements + 2).getString(0));
+        assertEquals(3, result.rowIds.size());
+      }
+    });
+  }
+
+  public void testForeachWithListParameter() {
+    int statements = db.getStatements().length();
+    Result result = new Result();
+    service.tagItems(Arrays.asList("x", "y"), Arrays.asList(1, 2), result);
+
+    db.complete();
+    assertEquals(1, result.successes);
+    assertEquals(statements + 2, db.getStatements().length());
+    for (int i = 0; i < 2; i++) {
+      assertEquals("INSERT INTO tags (item, tag) SELECT id, ? FROM items "
+          + "WHERE id IN (?,?)", db.getStatements().get(statements + i));
+      JsArrayMixed args = db.getArguments(statements + i);
+      assertEquals(3, args.length());
+      assertEquals(i == 0 ? "x" : "y", args.getString(0));
+      assertEquals("1", args.getString(1));
+      assertEquals("2", args.getString(2));
+    }
+  }
+
+  public void testLargeInListUsesTempTable() {
+    getService().setInListThreshold(2);
+    int statements = db.getStatements().length();
+    Rows result = new Rows();
+    service.getItemsById(Arrays.asList(1, 2, 3), result);
+    // Creating the table needs a read/write transaction:
+    assertFalse(db.isReadOnly());
+
+    db.complete();
+    getService().setInListThreshold(500);
+    assertEquals(1, result.successes);
+    JsArrayString sql = db.getStatements();
+    assertEquals(statements + 4, sql.length());
+    assertEquals("CREATE TEMP TABLE gwtdb_in_0 (v)", sql.get(statements));
+    assertEquals("INSERT INTO gwtdb_in_0 (v) VALUES (?),(?),(?)",
+        sql.get(statements + 1));
+    assertEquals("SELECT * FROM items WHERE id IN (SELECT v FROM gwtdb_in_0)",
+        sql.get(statements + 2));
+    assertEquals("DROP TABLE gwtdb_in_0", sql.get(statements + 3));
+  }
+
+  public void testSmallInListBindsItems() {
+    int statements = db.getStatements().length();
+    Rows result = new Rows();
+    service.getItemsById(Arrays.asList(1, 2, 3), result);
+    assertTrue(db.isReadOnly());
+
+    db.complete();
+    assertEquals(1, result.successes);
+    assertEquals("SELECT * FROM items WHERE id IN (?,?,?,?)",
+        db.getStatements().get(statements));
+    assertEquals(4, db.getArguments(statements).length());
+  }
+
+  public void testOptionalClauses() {
+    int statements = db.getStatements().length();
+    Rows result = new Rows();
+    service.searchItems(null, 5.0, result);
+    service.searchItems("a", null, result);
+    service.searchItems(null, null, result);
+
+    assertEquals(3, db.completeAll());
+    assertEquals(3, result.successes);
+    JsArrayString sql = db.getStatements();
+    assertEquals("SELECT * FROM items WHERE 1 = 1 AND price <= ?",
+        sql.get(statements));
+    assertEquals(1, db.getArguments(statements).length());
+    assertEquals("SELECT * FROM items WHERE 1 = 1 AND name = ?",
+        sql.get(statements + 1));
+    assertEquals("a", db.getArguments(statements + 1).getString(0));
+    assertEquals("SELECT * FROM items WHERE 1 = 1", sql.get(statements + 2));
+    assertEquals(0, db.getArguments(statements + 2).length());
+  }
+
+  public void testCompactMethods() {
+    CompactTestService compact = GWT.create(CompactTestService.class);
+    int statements = db.getStatements().length();
+    Result inserted = new Result();
+    Rows rows = new Rows();
+    compact.insertItem("a", inserted);
+    compact.getItems("a", rows);
+
+    assertFalse(db.isReadOnly());
+    db.complete();
+    assertTrue(db.isReadOnly());
+    db.complete();
+    assertEquals(1, inserted.successes);
+    assertEquals(1, rows.successes);
+    assertEquals(0, rows.result.size());
+    assertEquals("INSERT INTO items (name) VALUES (?)",
+        db.getStatements().get(statements));
+    assertEquals("a", db.getArguments(statements).getString(0));
+    assertEquals("SELECT * FROM items WHERE name = ?",
+        db.getStatements().get(statements + 1));
+  }
+
+  public void testRunAsyncQueuesCallsUntilLoaded() {
+    AsyncTestService async = GWT.create(AsyncTestService.class);
+    final AsyncDataService asyncService = (AsyncDataService) async;
+    final int statements = db.getStatements().length();
+    final Result first = new Result();
+    final Result second = new Result();
+    async.insertItem("a", first);
+    async.insertItem("b", second);
+    assertFalse(asyncService.isLoaded());
+    assertEquals(0, db.getPendingCount());
+
+    delayTestFinish(5000);
+    Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+      public boolean execute() {
+        if (!asyncService.isLoaded()) {
+          return true;
+        }
+        assertEquals(2, db.completeAll());
+        assertEquals(1, first.successes);
+        assertEquals(1, second.successes);
+        assertEquals("a", db.getArguments(statements).getString(0));
+        assertEquals("b", db.getArguments(statements + 1).getString(0));
+        finishTest();
+        return false;
+      }
+    }, 10);
+  }
+
+  public void testNativeArguments() {
+    int statements = db.getStatements().length();
+    Result result = new Result();
+    service.addItem(null, 5, 0.1f, true, result);
+
+    db.complete();
+    assertEquals(1, result.successes);
+    JsArrayMixed args = db.getArguments(statements);
+    assertEquals(4, args.length());
+    assertEquals("null", db.getArgumentType(statements, 0));
+    assertEquals("string", db.getArgumentType(statements, 1));
+    assertEquals("5", args.getString(1));
+    assertEquals("number", db.getArgumentType(statements, 2));
+    assertEquals(0.1, args.getNumber(2), 0);
+    assertEquals("boolean", db.getArgumentType(statements, 3));
+    assertTrue(args.getBoolean(3));
+  }
+
+  public void testResultRowsAreReadOnDemand() {
+    int items = db.getItemCount();
+    Rows result = new Rows();
+    service.getItems("a", result);
+    db.addRow("a");
+    db.addRow("b");
+    db.addRow("c");
+
+    db.complete();
+    assertEquals(items, db.getItemCount());
+    assertEquals(3, result.result.size());
+    assertEquals("b", result.result.get(1).getString("name"));
+    assertEquals(items + 1, db.getItemCount());
+  }
+
+  public void testResultRowsAreCopied() {
+    int items = db.getItemCount();
+    Rows result = new Rows();
+    service.getAllItems(result);
+    db.addRow("a");
+    db.addRow("b");
+    db.addRow("c");
+
+    db.complete();
+    assertEquals(items + 3, db.getItemCount());
+    assertEquals(3, result.result.size());
+    assertEquals("b", result.result.get(1).getString("name"));
+    assertEquals("c", result.result.get(2).getString("name"));
+    assertEquals(items + 3, db.getItemCount());
+  }
+
+  public void testColumnsCallback() {
+    Columns result = new Columns();
+    service.getItemColumns(result);
+    db.addRow("a", 1, 0.5);
+    db.addRow("b", 2, 1);
+    db.addRow("c", 3, 2.25);
+
+    db.complete();
+    assertNull(result.failure);
+    ResultColumns columns = result.columns;
+    assertEquals(3, columns.getRowCount());
+    assertEquals(Arrays.asList("name", "code", "price"),
+        columns.getColumnNames());
+    assertTrue(columns.isInt32Column("code"));
+    assertEquals(2, columns.getInt32Array("code").get(1));
+    assertFalse(columns.isInt32Column("price"));
+    assertTrue(columns.isNumberColumn("price"));
+    assertEquals(2.25, columns.getFloat64Array("price").get(2), 0);
+    assertFalse(columns.isNumberColumn("name"));
+    assertEquals("b", columns.getStrings("name").get(1));
+  }
+
+  public void testColumnsCallbackWithoutRows() {
+    Columns result = new Columns();
+    service.getItemColumns(result);
+
+    db.complete();
+    assertEquals(0, result.columns.getRowCount());
+    assertEquals(0, result.columns.getInt32Array("code").length());
+  }
+
+  public void testRowTypeMapping() {
+    ItemRows result = new ItemRows();
+    service.getItemRows(result);
+    db.addRow("a", 1, 0.5);
+    db.addRow("b", 2, 2.25);
+
+    db.complete();
+    assertNull(result.failure);
+    assertEquals(2, result.result.size());
+    ItemRow row = result.result.get(1);
+    assertEquals("b", row.name);
+    assertEquals(Integer.valueOf(2), row.code);
+    assertEquals(2.25, row.cost, 0);
+  }
+}
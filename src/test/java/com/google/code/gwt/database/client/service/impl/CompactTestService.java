@@ -0,0 +1,21 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.service.Compact;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+
+@Connection(name = "servicetest", version = "1", description = "Service test", maxsize = 10000)
+@Compact
+public interface CompactTestService extends DataService {
+
+  @Update("INSERT INTO items (name) VALUES ({name})")
+  void insertItem(String name, VoidCallback callback);
+
+  @Select("SELECT * FROM items WHERE name = {name}")
+  void getItems(String name, ListCallback<GenericRow> callback);
+}
@@ -0,0 +1,60 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests the parameter helpers of {@link DataServiceUtils}.
+ */
+public class DataServiceUtilsTest {
+
+  @Test
+  public void testPlaceholders() {
+    assertEquals("", DataServiceUtils.getPlaceholders(0));
+    assertEquals("?", DataServiceUtils.getPlaceholders(1));
+    assertEquals("?,?,?", DataServiceUtils.getPlaceholders(3));
+    assertSame(DataServiceUtils.getPlaceholders(100),
+        DataServiceUtils.getPlaceholders(100));
+    assertEquals(2 * 2000 - 1, DataServiceUtils.getPlaceholders(2000).length());
+  }
+
+  @Test
+  public void testAddParametersRepeatsLastItem() {
+    Object[] params = new Object[6];
+    params[0] = "first";
+    int offset = DataServiceUtils.addParameters(params, 1, new int[] {7, 8, 9},
+        4);
+    assertEquals(5, offset);
+    assertEquals("[first, 7, 8, 9, 9, null]", Arrays.toString(params));
+  }
+
+  @Test
+  public void testAddParametersOfIterable() {
+    Object[] params = new Object[4];
+    int offset = DataServiceUtils.addParameters(params, 0,
+        new LinkedList<String>(Arrays.asList("a", "b", "c")), 4);
+    assertEquals(4, offset);
+    assertEquals("[a, b, c, c]", Arrays.toString(params));
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testDeprecatedAddParameter() {
+    StringBuilder sql = new StringBuilder("IN (");
+    Object[] params = new Object[5];
+    int offset = DataServiceUtils.addParameter(sql, params, 0,
+        new long[] {1, 2});
+    sql.append(") AND name IN (");
+    offset = DataServiceUtils.addParameter(sql, params, offset,
+        new LinkedList<String>(Arrays.asList("a", "b", "c")));
+    sql.append(")");
+    assertEquals(5, offset);
+    assertEquals("IN (?,?) AND name IN (?,?,?)", sql.toString());
+    assertEquals("[1, 2, a, b, c]", Arrays.toString(params));
+  }
+}
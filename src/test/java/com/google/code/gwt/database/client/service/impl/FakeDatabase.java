@@ -0,0 +1,187 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.Database;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayMixed;
+import com.google.gwt.core.client.JsArrayString;
+
+/**
+ * A Web Database stand-in which queues its transactions until the test
+ * completes them, and records the SQL statements they execute along with
+ * their arguments.
+ */
+final class FakeDatabase extends JavaScriptObject {
+
+  protected FakeDatabase() {
+  }
+
+  /**
+   * Creates an empty database.
+   */
+  static native FakeDatabase create() /*-{
+    var db = {pending: [], statements: [], arguments: [], rows: [],
+        itemCount: 0};
+    var queue = function(readOnly) {
+      return function(start, error, success) {
+        db.pending.push({start: start, error: error, success: success,
+            readOnly: readOnly});
+      };
+    };
+    db.transaction = queue(false);
+    db.readTransaction = queue(true);
+    return db;
+  }-*/;
+
+  /**
+   * Replaces <code>$wnd.openDatabase</code> with a function opening a
+   * FakeDatabase per name - see {@link #get(String)}. The databases stay
+   * open, like the connections in the {@link DatabaseRegistry}.
+   */
+  static native void install() /*-{
+    if ($wnd.fakeDatabases) {
+      return;
+    }
+    var databases = {};
+    $wnd.fakeDatabases = databases;
+    $wnd.openDatabase = function(name, version, description, size) {
+      if (!databases[name]) {
+        databases[name] = @com.google.code.gwt.database.client.service.impl.FakeDatabase::create()();
+      }
+      return databases[name];
+    };
+  }-*/;
+
+  /**
+   * Returns the FakeDatabase opened with the specified name, or
+   * <code>null</code> if it isn't opened.
+   */
+  static native FakeDatabase get(String name) /*-{
+    return $wnd.fakeDatabases[name] || null;
+  }-*/;
+
+  final Database asDatabase() {
+    return cast();
+  }
+
+  /**
+   * Returns the number of transactions waiting to be completed.
+   */
+  final native int getPendingCount() /*-{
+    return this.pending.length;
+  }-*/;
+
+  /**
+   * Returns <code>true</code> if the oldest waiting transaction is a read-only
+   * transaction.
+   */
+  final native boolean isReadOnly() /*-{
+    return this.pending[0].readOnly;
+  }-*/;
+
+  /**
+   * Adds a row with the specified name column to the result of the statements
+   * executed by the next completed transaction.
+   */
+  final native void addRow(String name) /*-{
+    this.rows.push({name: name});
+  }-*/;
+
+  /**
+   * Adds a row with the specified name, code and price columns to the result of
+   * the statements executed by the next completed transaction.
+   */
+  final native void addRow(String name, int code, double price) /*-{
+    this.rows.push({name: name, code: code, price: price});
+  }-*/;
+
+  /**
+   * Returns the number of rows read from the results of the executed
+   * statements.
+   */
+  final native int getItemCount() /*-{
+    return this.itemCount;
+  }-*/;
+
+  /**
+   * Runs the oldest waiting transaction; all of its statements succeed and
+   * return the rows added by {@link #addRow(String)}.
+   */
+  final native void complete() /*-{
+    var db = this;
+    var t = db.pending.shift();
+    var rows = db.rows;
+    db.rows = [];
+    var tx = {
+      executeSql: function(sql, args, success, error) {
+        db.statements.push(sql);
+        db.arguments.push(args);
+        if (success) {
+          success(tx, {
+            insertId: db.statements.length,
+            rowsAffected: 1,
+            rows: {
+              length: rows.length,
+              item: function(i) {
+                db.itemCount++;
+                return rows[i];
+              }
+            }
+          });
+        }
+      }
+    };
+    t.start(tx);
+    t.success();
+  }-*/;
+
+  /**
+   * Runs the waiting transactions, including the ones started meanwhile, until
+   * none is left; all of their statements succeed.
+   * 
+   * @return the number of transactions run
+   */
+  final int completeAll() {
+    int count = 0;
+    while (getPendingCount() > 0) {
+      complete();
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Runs the oldest waiting transaction, and rolls it back with the specified
+   * error. Its statements are not recorded.
+   */
+  final native void fail(int code, String message) /*-{
+    var t = this.pending.shift();
+    t.start({
+      executeSql: function(sql, args, success, error) {
+      }
+    });
+    t.error({code: code, message: message});
+  }-*/;
+
+  /**
+   * Returns the SQL statements executed by the completed transactions.
+   */
+  final native JsArrayString getStatements() /*-{
+    return this.statements;
+  }-*/;
+
+  /**
+   * Returns the arguments bound to the specified executed SQL statement.
+   */
+  final native JsArrayMixed getArguments(int index) /*-{
+    return this.arguments[index];
+  }-*/;
+
+  /**
+   * Returns the JavaScript type of the specified argument of the specified
+   * executed SQL statement, or <code>"null"</code>.
+   */
+  final native String getArgumentType(int statement, int index) /*-{
+    var value = this.arguments[statement][index];
+    return value === null ? 'null' : typeof value;
+  }-*/;
+}
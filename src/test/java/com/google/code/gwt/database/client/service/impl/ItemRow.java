@@ -0,0 +1,12 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.service.Column;
+import com.google.code.gwt.database.client.service.RowType;
+
+@RowType
+public class ItemRow {
+  String name;
+  Integer code;
+  @Column("price")
+  double cost;
+}
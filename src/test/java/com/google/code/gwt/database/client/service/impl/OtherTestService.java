@@ -0,0 +1,13 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+
+@Connection(name = "othertest", version = "1", description = "Other test", maxsize = 10000)
+public interface OtherTestService extends DataService {
+
+  @Update("INSERT INTO others (name) VALUES ({name})")
+  void insertOther(String name, VoidCallback callback);
+}
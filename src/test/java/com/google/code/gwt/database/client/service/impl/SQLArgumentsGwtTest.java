@@ -0,0 +1,111 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.SQLArguments;
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.gwt.core.client.JsArrayMixed;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class SQLArgumentsGwtTest extends GWTTestCase {
+
+  private FakeDatabase db;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() {
+    db = FakeDatabase.create();
+  }
+
+  /**
+   * Executes the specified statement in a transaction of its own, and returns
+   * the arguments the database received.
+   */
+  private JsArrayMixed execute(final Object[] values,
+      final SQLArguments args) {
+    db.asDatabase().transaction(new TransactionCallback() {
+      public void onTransactionStart(SQLTransaction tx) {
+        if (args != null) {
+          tx.executeSql("INSERT INTO t VALUES (?)", args);
+        } else {
+          tx.executeSql("INSERT INTO t VALUES (?)", values);
+        }
+      }
+
+      public void onTransactionSuccess() {
+      }
+
+      public void onTransactionFailure(SQLError error) {
+        fail(error.getMessage());
+      }
+    });
+    db.complete();
+    return db.getArguments(db.getStatements().length() - 1);
+  }
+
+  private static native String typeOf(JsArrayMixed array, int index) /*-{
+    return array[index] === null ? 'null' : typeof array[index];
+  }-*/;
+
+  public void testObjectArrayBindsStrings() {
+    JsArrayMixed args = execute(new Object[] {5, 2.5, true, "x", null}, null);
+    assertEquals("string", typeOf(args, 0));
+    assertEquals("5", args.getString(0));
+    assertEquals("2.5", args.getString(1));
+    assertEquals("true", args.getString(2));
+    assertEquals("x", args.getString(3));
+    assertEquals("null", typeOf(args, 4));
+  }
+
+  public void testNativeArgumentsKeepTypes() {
+    JsArrayMixed args = execute(null, SQLArguments.create(new Object[] {
+        5, 2.5, true, "x", null, 'c'}));
+    assertEquals("number", typeOf(args, 0));
+    assertEquals(5.0, args.getNumber(0), 0);
+    assertEquals(2.5, args.getNumber(1), 0);
+    assertEquals("boolean", typeOf(args, 2));
+    assertTrue(args.getBoolean(2));
+    assertEquals("x", args.getString(3));
+    assertEquals("null", typeOf(args, 4));
+    assertEquals("string", typeOf(args, 5));
+    assertEquals("c", args.getString(5));
+  }
+
+  public void testFloatBindsItsDecimalValue() {
+    SQLArguments args = SQLArguments.create(new Object[] {0.1f});
+    args.add(0.1f);
+    JsArrayMixed bound = execute(null, args);
+    assertEquals(0.1, bound.getNumber(0), 0);
+    assertEquals(0.1, bound.getNumber(1), 0);
+  }
+
+  public void testLongBindsNumberOnlyIfExact() {
+    SQLArguments args = SQLArguments.create();
+    args.add(9007199254740991L);
+    args.add(9007199254740993L);
+    args.add(Long.valueOf(-9007199254740993L));
+    JsArrayMixed bound = execute(null, args);
+    assertEquals("number", typeOf(bound, 0));
+    assertEquals(9007199254740991.0, bound.getNumber(0), 0);
+    assertEquals("9007199254740993", bound.getString(1));
+    assertEquals("-9007199254740993", bound.getString(2));
+  }
+
+  public void testToArray() {
+    SQLArguments args = SQLArguments.create();
+    args.add(7);
+    args.add("x");
+    args.add(false);
+    args.add((Object) null);
+    Object[] values = args.toArray();
+    assertEquals(4, values.length);
+    assertEquals(Double.valueOf(7), values[0]);
+    assertEquals("x", values[1]);
+    assertEquals(Boolean.FALSE, values[2]);
+    assertNull(values[3]);
+  }
+}
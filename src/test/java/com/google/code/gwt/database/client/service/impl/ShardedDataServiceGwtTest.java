@@ -0,0 +1,100 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class ShardedDataServiceGwtTest extends GWTTestCase {
+
+  private static class Result implements VoidCallback {
+    private int successes;
+
+    public void onSuccess() {
+      successes++;
+    }
+
+    public void onFailure(DataServiceException error) {
+      fail(error.getMessage());
+    }
+  }
+
+  private ShardedTestService service;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() {
+    FakeDatabase.install();
+    service = GWT.create(ShardedTestService.class);
+  }
+
+  private ShardedDataService getSharded() {
+    return (ShardedDataService) service;
+  }
+
+  private static FakeDatabase getShardDatabase(int index) {
+    return FakeDatabase.get("shardtest_" + index);
+  }
+
+  private static int getPendingCount(int index) {
+    FakeDatabase db = getShardDatabase(index);
+    return db != null ? db.getPendingCount() : 0;
+  }
+
+  public void testShardIndexMatchesJavaHashCode() {
+    // The values of String.hashCode(), Long.hashCode() and Double.hashCode()
+    // on the JVM:
+    assertEquals(3, getSharded().getShardCount());
+    assertEquals(0, getSharded().getShardIndex("alice"));
+    assertEquals(1, getSharded().getShardIndex("bob"));
+    assertEquals(2, getSharded().getShardIndex(5000000000L));
+    assertEquals(0, getSharded().getShardIndex(-7L));
+    assertEquals(0, getSharded().getShardIndex(1.0));
+    assertEquals(2, getSharded().getShardIndex(0.1));
+    assertEquals(1, getSharded().getShardIndex(-3.75));
+    assertEquals(getSharded().getShardIndex(2.5), getSharded().getShardIndex(
+        2.5f));
+  }
+
+  public void testLongKeyedCallRunsOnOneShard() {
+    Result result = new Result();
+    service.removeEvent(5000000000L, result);
+    assertEquals(0, getPendingCount(0));
+    assertEquals(0, getPendingCount(1));
+    assertEquals(1, getPendingCount(2));
+
+    getShardDatabase(2).complete();
+    assertEquals(1, result.successes);
+  }
+
+  public void testKeyedCallRunsOnOneShard() {
+    Result result = new Result();
+    service.addEvent("bob", "login", result);
+    assertEquals(0, getPendingCount(0));
+    assertEquals(1, getPendingCount(1));
+    assertEquals(0, getPendingCount(2));
+
+    FakeDatabase db = getShardDatabase(1);
+    db.complete();
+    assertEquals("INSERT INTO events (user, what) VALUES (?, ?)",
+        db.getStatements().get(db.getStatements().length() - 1));
+    assertEquals(1, result.successes);
+  }
+
+  public void testBroadcastRunsOnAllShards() {
+    Result result = new Result();
+    service.init(result);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(1, getPendingCount(i));
+    }
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, result.successes);
+      getShardDatabase(i).complete();
+    }
+    assertEquals(1, result.successes);
+  }
+}
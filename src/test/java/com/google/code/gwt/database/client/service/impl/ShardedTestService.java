@@ -0,0 +1,24 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.service.Broadcast;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.ShardKey;
+import com.google.code.gwt.database.client.service.Shards;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+
+@Connection(name = "shardtest", version = "1", description = "Shard test", maxsize = 10000)
+@Shards(3)
+public interface ShardedTestService extends DataService {
+
+  @Update("CREATE TABLE IF NOT EXISTS events (user TEXT, what TEXT)")
+  @Broadcast
+  void init(VoidCallback callback);
+
+  @Update("INSERT INTO events (user, what) VALUES ({user}, {what})")
+  void addEvent(@ShardKey String user, String what, VoidCallback callback);
+
+  @Update("DELETE FROM events WHERE rowid = {id}")
+  void removeEvent(@ShardKey long id, VoidCallback callback);
+}
@@ -0,0 +1,131 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the placeholder sizes, temporary table decisions and SQL texts of
+ * {@link SqlTemplate}.
+ */
+public class SqlTemplateTest {
+
+  private static SqlTemplate createTemplate(int fixedParameters,
+      boolean... rounded) {
+    String[] parts = new String[rounded.length + 1];
+    parts[0] = "SELECT * FROM t WHERE a IN (";
+    for (int i = 1; i < parts.length; i++) {
+      parts[i] = i < rounded.length ? ") AND b IN (" : ")";
+    }
+    return new SqlTemplate(parts, rounded, fixedParameters);
+  }
+
+  private static void assertSizes(int[] expected, int[] actual) {
+    assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+  }
+
+  @Test
+  public void testSizesAreRoundedUp() {
+    SqlTemplate template = createTemplate(0, true);
+    assertSizes(new int[] {0}, template.getSizes(new int[] {0}));
+    assertSizes(new int[] {1}, template.getSizes(new int[] {1}));
+    assertSizes(new int[] {4}, template.getSizes(new int[] {3}));
+    assertSizes(new int[] {512}, template.getSizes(new int[] {500}));
+  }
+
+  @Test
+  public void testSizesOfIncompleteListsAreExact() {
+    SqlTemplate template = createTemplate(0, false, true);
+    assertSizes(new int[] {3, 4}, template.getSizes(new int[] {3, 3}));
+  }
+
+  @Test
+  public void testTempTableHasNoPlaceholders() {
+    SqlTemplate template = createTemplate(0, true, true);
+    assertSizes(new int[] {0, 4},
+        template.getSizes(new int[] {SqlTemplate.TEMP_TABLE, 3}));
+  }
+
+  @Test
+  public void testRoundedSizeAboveLimitIsExact() {
+    SqlTemplate template = createTemplate(0, true);
+    assertSizes(new int[] {513}, template.getSizes(new int[] {513}));
+    assertSizes(new int[] {999}, template.getSizes(new int[] {999}));
+  }
+
+  @Test
+  public void testRoundedSizesAboveLimitAreExact() {
+    SqlTemplate template = createTemplate(0, true, true);
+    assertSizes(new int[] {500, 499}, template.getSizes(new int[] {500, 499}));
+    assertSizes(new int[] {256, 256}, template.getSizes(new int[] {200, 250}));
+  }
+
+  @Test
+  public void testFixedParametersCountTowardsLimit() {
+    SqlTemplate template = createTemplate(488, true);
+    assertSizes(new int[] {511}, template.getSizes(new int[] {511}));
+    assertSizes(new int[] {512}, createTemplate(487, true).getSizes(
+        new int[] {511}));
+  }
+
+  @Test
+  public void testListAboveThresholdUsesTempTable() {
+    SqlTemplate template = createTemplate(0, true, true);
+    boolean[] tables = template.getTempTables(new int[] {501, 10}, 500);
+    assertTrue(tables[0]);
+    assertFalse(tables[1]);
+  }
+
+  @Test
+  public void testLargestListUsesTempTableAboveLimit() {
+    SqlTemplate template = createTemplate(0, true, true);
+    boolean[] tables = template.getTempTables(new int[] {400, 600}, 700);
+    assertFalse(tables[0]);
+    assertTrue(tables[1]);
+  }
+
+  @Test
+  public void testThresholdAboveLimitUsesTempTable() {
+    SqlTemplate template = createTemplate(1, true);
+    assertTrue(template.getTempTables(new int[] {999}, 5000)[0]);
+    assertFalse(template.getTempTables(new int[] {998}, 5000)[0]);
+  }
+
+  @Test
+  public void testIncompleteListNeverUsesTempTable() {
+    SqlTemplate template = createTemplate(0, false, true);
+    boolean[] tables = template.getTempTables(new int[] {900, 200}, 500);
+    assertFalse(tables[0]);
+    assertTrue(tables[1]);
+  }
+
+  @Test
+  public void testSql() {
+    assertEquals("SELECT * FROM t WHERE a IN (?,?,?)",
+        createTemplate(0, true).getSql(3));
+    assertEquals("SELECT * FROM t WHERE a IN (?,?) AND b IN (?)",
+        createTemplate(0, true, true).getSql(new int[] {2, 1}));
+  }
+
+  @Test
+  public void testSqlIsCached() {
+    SqlTemplate template = createTemplate(0, true);
+    assertSame(template.getSql(4), template.getSql(4));
+    assertSame(template.getSql(4), template.getSql(new int[] {4}));
+    SqlTemplate pair = createTemplate(0, true, true);
+    assertSame(pair.getSql(new int[] {2, 4}), pair.getSql(new int[] {2, 4}));
+  }
+
+  @Test
+  public void testTempTableSql() {
+    SqlTemplate template = createTemplate(0, true, true);
+    assertEquals("SELECT * FROM t WHERE a IN (?,?) AND b IN "
+        + "(SELECT v FROM gwtdb_in_1)",
+        template.getSql(new int[] {2, SqlTemplate.TEMP_TABLE}));
+  }
+}
@@ -0,0 +1,62 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.List;
+
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.service.CallHandle;
+import com.google.code.gwt.database.client.service.ColumnsCallback;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.RowIdListCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.SingleFlight;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+
+@Connection(name = "servicetest", version = "1", description = "Service test", maxsize = 10000)
+public interface TestService extends DataService {
+
+  @Update("INSERT INTO items (name) VALUES ({name})")
+  void insertItem(String name, VoidCallback callback);
+
+  @Update("INSERT INTO items (name) VALUES ({name})")
+  CallHandle addItem(String name, VoidCallback callback);
+
+  @Update("INSERT INTO items (name, code, price, available) VALUES ({name}, {String.valueOf(code)}, {price}, {available})")
+  void addItem(String name, int code, float price, boolean available, VoidCallback callback);
+
+  @Update("INSERT INTO items (name) VALUES ({name})")
+  void addItem(String name, CallHandle handle, VoidCallback callback);
+
+  @Update(sql = "INSERT INTO items (name) VALUES ({_})", foreach = "names", bulk = true)
+  void importItems(List<String> names, VoidCallback callback);
+
+  @Update(sql = "INSERT INTO items (name) VALUES ({_})", foreach = "names", chunkSize = 2)
+  void insertItems(List<String> names, RowIdListCallback callback);
+
+  @Update(sql = "INSERT INTO tags (item, tag) SELECT id, {_} FROM items WHERE id IN ({ids})", foreach = "tags")
+  void tagItems(List<String> tags, List<Integer> ids, VoidCallback callback);
+
+  @Select("SELECT * FROM items WHERE name = {name}")
+  void getItems(String name, ListCallback<GenericRow> callback);
+
+  @Select(value = "SELECT * FROM items", copyRows = true)
+  void getAllItems(ListCallback<GenericRow> callback);
+
+  @Select("SELECT * FROM items")
+  void getItemColumns(ColumnsCallback callback);
+
+  @Select("SELECT * FROM items")
+  void getItemRows(ListCallback<ItemRow> callback);
+
+  @Select("SELECT * FROM items WHERE id IN ({ids})")
+  void getItemsById(List<Integer> ids, ListCallback<GenericRow> callback);
+
+  @Select("SELECT * FROM items WHERE 1 = 1{? AND name = {name}}{? AND price <= {maxPrice}}")
+  void searchItems(String name, Double maxPrice, ListCallback<GenericRow> callback);
+
+  @SingleFlight
+  @Select("SELECT * FROM items WHERE name = {name}")
+  void findItems(String name, ListCallback<GenericRow> callback);
+}
@@ -0,0 +1,137 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.service.DataServiceException;
+import com.google.code.gwt.database.client.service.Lane;
+import com.google.code.gwt.database.client.service.VoidCallback;
+import com.google.code.gwt.database.client.service.callback.voyd.TransactionCallbackVoidCallback;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.GWT.UncaughtExceptionHandler;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class TransactionBatchGwtTest extends GWTTestCase {
+
+  private static class Result implements VoidCallback {
+    private int successes;
+    private DataServiceException failure;
+
+    public void onSuccess() {
+      successes++;
+    }
+
+    public void onFailure(DataServiceException error) {
+      failure = error;
+    }
+  }
+
+  private static class Insert extends TransactionCallbackVoidCallback {
+    private boolean broken;
+
+    Insert(Result result, boolean broken) {
+      super(result);
+      this.broken = broken;
+    }
+
+    @Override
+    public String getMethodName() {
+      return broken ? "brokenInsert" : "insert";
+    }
+
+    public void onTransactionStart(SQLTransaction tx) {
+      if (broken) {
+        throw new IllegalStateException("broken");
+      }
+      tx.executeSql("INSERT INTO t VALUES (1)", new Object[0]);
+    }
+  }
+
+  private UncaughtExceptionHandler previousHandler;
+  private List<Throwable> uncaught = new ArrayList<Throwable>();
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() {
+    previousHandler = GWT.getUncaughtExceptionHandler();
+    GWT.setUncaughtExceptionHandler(new UncaughtExceptionHandler() {
+      public void onUncaughtException(Throwable e) {
+        uncaught.add(e);
+      }
+    });
+  }
+
+  @Override
+  protected void gwtTearDown() {
+    GWT.setUncaughtExceptionHandler(previousHandler);
+  }
+
+  public void testSharedTransaction() {
+    FakeDatabase db = FakeDatabase.create();
+    TransactionBatch batch = new TransactionBatch(new TransactionScheduler(
+        db.asDatabase()), false);
+    Result first = new Result();
+    Result second = new Result();
+    batch.add(new Insert(first, false), Lane.NORMAL);
+    batch.add(new Insert(second, false), Lane.NORMAL);
+    batch.execute();
+    assertEquals(1, db.getPendingCount());
+
+    db.complete();
+    assertEquals(2, db.getStatements().length());
+    assertEquals(1, first.successes);
+    assertEquals(1, second.successes);
+  }
+
+  public void testFailedBatchRetriesEachMember() {
+    FakeDatabase db = FakeDatabase.create();
+    TransactionBatch batch = new TransactionBatch(new TransactionScheduler(
+        db.asDatabase()), false);
+    Result first = new Result();
+    Result second = new Result();
+    batch.add(new Insert(first, false), Lane.NORMAL);
+    batch.add(new Insert(second, false), Lane.NORMAL);
+    batch.execute();
+
+    db.fail(SQLError.CONSTRAINT_ERR, "constraint failed");
+    assertNull(first.failure);
+    assertEquals(0, first.successes);
+
+    // Each member is retried in a transaction of its own:
+    db.fail(SQLError.CONSTRAINT_ERR, "constraint failed");
+    db.complete();
+    assertEquals(0, db.getPendingCount());
+    assertNotNull(first.failure);
+    assertEquals(0, first.successes);
+    assertNull(second.failure);
+    assertEquals(1, second.successes);
+  }
+
+  public void testThrowingMemberFails() {
+    FakeDatabase db = FakeDatabase.create();
+    TransactionBatch batch = new TransactionBatch(new TransactionScheduler(
+        db.asDatabase()), false);
+    Result before = new Result();
+    Result broken = new Result();
+    Result after = new Result();
+    batch.add(new Insert(before, false), Lane.NORMAL);
+    batch.add(new Insert(broken, true), Lane.NORMAL);
+    batch.add(new Insert(after, false), Lane.NORMAL);
+    batch.execute();
+
+    db.complete();
+    assertEquals(1, before.successes);
+    assertEquals(1, after.successes);
+    assertEquals(0, broken.successes);
+    assertNotNull(broken.failure);
+    assertTrue(broken.failure.getMessage().contains("brokenInsert"));
+    assertEquals(1, uncaught.size());
+    assertEquals("broken", uncaught.get(0).getMessage());
+  }
+}
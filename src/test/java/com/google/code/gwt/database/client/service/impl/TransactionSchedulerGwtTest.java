@@ -0,0 +1,100 @@
+package com.google.code.gwt.database.client.service.impl;
+
+import com.google.code.gwt.database.client.SQLError;
+import com.google.code.gwt.database.client.SQLTransaction;
+import com.google.code.gwt.database.client.TransactionCallback;
+import com.google.code.gwt.database.client.service.Lane;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class TransactionSchedulerGwtTest extends GWTTestCase {
+
+  private static class Counter implements TransactionCallback {
+    private int succeeded;
+
+    public void onTransactionStart(SQLTransaction transaction) {
+    }
+
+    public void onTransactionSuccess() {
+      succeeded++;
+    }
+
+    public void onTransactionFailure(SQLError error) {
+      fail(error.getMessage());
+    }
+  }
+
+  private FakeDatabase db;
+  private TransactionScheduler scheduler;
+
+  @Override
+  public String getModuleName() {
+    return "com.google.code.gwt.database.Html5Database";
+  }
+
+  @Override
+  protected void gwtSetUp() {
+    db = FakeDatabase.create();
+    scheduler = new TransactionScheduler(db.asDatabase());
+  }
+
+  public void testUnlimitedByDefault() {
+    Counter background = new Counter();
+    scheduler.transaction(new Counter(), Lane.NORMAL);
+    scheduler.readTransaction(new Counter(), Lane.NORMAL);
+    scheduler.transaction(background, Lane.BACKGROUND);
+    scheduler.transaction(new Counter(), Lane.INTERACTIVE);
+    assertEquals(4, db.getPendingCount());
+    assertEquals(4, scheduler.getActiveCount());
+
+    assertEquals(4, db.completeAll());
+    assertEquals(1, background.succeeded);
+    assertEquals(0, scheduler.getActiveCount());
+  }
+
+  public void testExplicitMaxActive() {
+    scheduler.setMaxActive(2);
+    for (int i = 0; i < 3; i++) {
+      scheduler.transaction(new Counter(), Lane.NORMAL);
+    }
+    assertEquals(2, db.getPendingCount());
+    assertEquals(1, scheduler.getQueueDepth(Lane.NORMAL));
+
+    db.complete();
+    assertEquals(2, db.getPendingCount());
+    assertEquals(0, scheduler.getQueueDepth(Lane.NORMAL));
+  }
+
+  public void testLanesSerializeTransactions() {
+    scheduler.setMaxActive(1);
+    Counter normal = new Counter();
+    Counter background = new Counter();
+    final Counter interactive = new Counter();
+    scheduler.transaction(normal, Lane.NORMAL);
+    scheduler.readTransaction(background, Lane.BACKGROUND);
+    scheduler.transaction(interactive, Lane.INTERACTIVE);
+    assertEquals(1, db.getPendingCount());
+    assertEquals(1, scheduler.getQueueDepth(Lane.BACKGROUND));
+    assertEquals(1, scheduler.getQueueDepth(Lane.INTERACTIVE));
+
+    // The interactive transaction overtakes the background one:
+    db.complete();
+    assertEquals(1, normal.succeeded);
+    assertEquals(0, scheduler.getQueueDepth(Lane.INTERACTIVE));
+    db.complete();
+    assertEquals(1, interactive.succeeded);
+
+    // The background transaction only starts after yielding:
+    assertEquals(0, db.getPendingCount());
+    assertEquals(1, scheduler.getQueueDepth(Lane.BACKGROUND));
+    delayTestFinish(5000);
+    Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+      public void execute() {
+        assertEquals(1, db.getPendingCount());
+        assertEquals(1, scheduler.getStartedCount(Lane.BACKGROUND));
+        finishTest();
+      }
+    });
+  }
+}
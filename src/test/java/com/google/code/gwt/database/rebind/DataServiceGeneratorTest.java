@@ -0,0 +1,314 @@
+package com.google.code.gwt.database.rebind;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.gwt.core.ext.CachedGeneratorResult;
+import com.google.gwt.core.ext.RebindMode;
+import com.google.gwt.core.ext.RebindResult;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.linker.ArtifactSet;
+import com.google.gwt.dev.Compiler;
+import com.google.gwt.dev.CompilerContext;
+import com.google.gwt.dev.CompilerOptionsImpl;
+import com.google.gwt.dev.cfg.ModuleDef;
+import com.google.gwt.dev.cfg.ModuleDefLoader;
+import com.google.gwt.dev.javac.CachedGeneratorResultImpl;
+import com.google.gwt.dev.javac.CompilationState;
+import com.google.gwt.dev.javac.GeneratedUnit;
+import com.google.gwt.dev.javac.StandardGeneratorContext;
+import com.google.gwt.dev.util.log.PrintWriterTreeLogger;
+
+/**
+ * Compiles the DataServices in the <code>services</code> package and checks
+ * the source code generated for them, and when the Generator reuses a cached
+ * proxy.
+ */
+public class DataServiceGeneratorTest {
+
+  private static final String PACKAGE = "com.google.code.gwt.database.rebind";
+  private static final File OUTPUT_DIR = new File("target/generator-test");
+
+  /**
+   * The outcome of compiling one of the test modules.
+   */
+  private static class Compilation {
+    private File genDir;
+    private boolean succeeded;
+    private String log;
+
+    String getSource(String simpleName) throws IOException {
+      File file = new File(genDir, PACKAGE.replace('.', '/') + "/services/"
+          + simpleName + ".java");
+      assertTrue("Not generated: " + file, file.exists());
+      return new String(Files.readAllBytes(file.toPath()),
+          Charset.forName("UTF-8"));
+    }
+  }
+
+  private static Compilation testServices;
+  private static CompilerContext compilerContext;
+  private static CompilationState compilationState;
+
+  private static Compilation compile(String module) {
+    System.setProperty("gwt.persistentunitcache", "false");
+    Compilation result = new Compilation();
+    result.genDir = new File(OUTPUT_DIR, module + "/gen");
+    StringWriter log = new StringWriter();
+    PrintWriterTreeLogger logger = new PrintWriterTreeLogger(new PrintWriter(
+        log, true));
+    logger.setMaxDetail(TreeLogger.WARN);
+
+    CompilerOptionsImpl options = new CompilerOptionsImpl();
+    options.setModuleNames(Collections.singletonList(PACKAGE + "." + module));
+    options.setGenDir(result.genDir);
+    options.setWarDir(new File(OUTPUT_DIR, module + "/war"));
+    options.setOptimizationLevel(0);
+    try {
+      result.succeeded = new Compiler(options).run(logger);
+    } catch (UnableToCompleteException e) {
+      result.succeeded = false;
+    }
+    result.log = log.toString();
+    return result;
+  }
+
+  @BeforeClass
+  public static void checkJavaVersion() {
+    // The GWT 2.7 compiler cannot read the class library of Java 9 or later:
+    assumeTrue(System.getProperty("java.specification.version").startsWith(
+        "1."));
+  }
+
+  private static synchronized Compilation getTestServices() {
+    if (testServices == null) {
+      testServices = compile("TestServices");
+      assertTrue(testServices.log, testServices.succeeded);
+    }
+    return testServices;
+  }
+
+  /**
+   * Creates the GeneratorContext of a compile with the specified result of a
+   * previous compile.
+   */
+  private static synchronized StandardGeneratorContext createContext(
+      Map<String, Serializable> cachedClientData)
+      throws UnableToCompleteException {
+    if (compilationState == null) {
+      System.setProperty("gwt.persistentunitcache", "false");
+      TreeLogger logger = createLogger();
+      ModuleDef module = ModuleDefLoader.loadFromClassPath(logger,
+          new CompilerContext(), PACKAGE + ".TestServices");
+      compilerContext = new CompilerContext.Builder().module(module).build();
+      compilationState = module.getCompilationState(logger, compilerContext);
+    }
+    StandardGeneratorContext context = new StandardGeneratorContext(
+        compilerContext, compilationState, new ArtifactSet(), true);
+    context.setGeneratorResultCachingEnabled(true);
+    if (cachedClientData != null) {
+      CachedGeneratorResult cached = new CachedGeneratorResultImpl(PACKAGE
+          + ".services.ItemService_SqlProxy", new ArtifactSet(),
+          new HashMap<String, GeneratedUnit>(), 0, cachedClientData);
+      context.setCachedGeneratorResult(cached);
+    }
+    return context;
+  }
+
+  /**
+   * Runs the DataServiceGenerator on ItemService.
+   */
+  private static RebindResult generate(StandardGeneratorContext context)
+      throws UnableToCompleteException {
+    return new DataServiceGenerator().generateIncrementally(createLogger(),
+        context, PACKAGE + ".services.ItemService");
+  }
+
+  private static TreeLogger createLogger() {
+    return new PrintWriterTreeLogger(new PrintWriter(new StringWriter(), true));
+  }
+
+  /**
+   * Returns the source code of the specified generated method, up to and
+   * including its closing brace.
+   */
+  private static String getMethod(String source, String name) {
+    int start = source.indexOf(" void " + name + "(");
+    assertTrue("Method not found: " + name, start >= 0);
+    int end = source.indexOf("\n  }\n", start);
+    return source.substring(start, end + 4);
+  }
+
+  private static void assertContains(String expected, String actual) {
+    assertTrue("Expected <" + expected + "> in:\n" + actual,
+        actual.contains(expected));
+  }
+
+  @Test
+  public void testRowIdListCallbackIgnoresBulk() throws IOException {
+    Compilation compilation = getTestServices();
+    String method = getMethod(compilation.getSource("ItemService_SqlProxy"),
+        "insertItems");
+    assertContains("new StatementCallbackRowIdListCallback(this)", method);
+    assertContains("execNative(tx, \"INSERT INTO items (name) VALUES (?)\"",
+        method);
+    assertFalse(method, method.contains("getBulkSql"));
+    assertContains("insertItems: bulk=true is ignored", compilation.log);
+  }
+
+  @Test
+  public void testSqlTemplateCountsFixedParameters() throws IOException {
+    String source = getTestServices().getSource("ItemService_SqlProxy");
+    assertContains("new SqlTemplate(new String[] {\"SELECT * FROM items WHERE "
+        + "id IN (\", \") AND name = ?\"}, new boolean[] {true}, 1);", source);
+    String method = getMethod(source, "getItems");
+    assertContains(".getSizes(new int[] {table0 ? SqlTemplate.TEMP_TABLE : "
+        + "count0});", method);
+  }
+
+  @Test
+  public void testTempTablesDependOnAllLists() throws IOException {
+    String method = getMethod(
+        getTestServices().getSource("ItemService_SqlProxy"),
+        "getMatchingItems");
+    assertContains("final int count0 = ids.length;", method);
+    assertContains("final int count1 = DataServiceUtils.getSize(names);",
+        method);
+    assertContains(".getTempTables(new int[] {count0, count1}, "
+        + "getInListThreshold());", method);
+  }
+
+  @Test
+  public void testInListThresholdAboveLimitFails() {
+    Compilation compilation = compile("BadThreshold");
+    assertFalse(compilation.succeeded);
+    assertContains("The @InListThreshold of BadThresholdService must be "
+        + "between 0 and 999", compilation.log);
+  }
+
+  @Test
+  public void testVoidCallbackUsesBulk() throws IOException {
+    String method = getMethod(
+        getTestServices().getSource("ItemService_SqlProxy"), "importItems");
+    assertContains("DataServiceUtils.getBulkSql(\"INSERT INTO items (name) "
+        + "VALUES \", \"(?)\", \"\"", method);
+  }
+
+  @Test
+  public void testOptionalClauseVariants() throws IOException {
+    String source = getTestServices().getSource("ItemService_SqlProxy");
+    assertContains("\"SELECT * FROM items WHERE 1 = 1\",\n", source);
+    assertContains("\"SELECT * FROM items WHERE 1 = 1 AND name = ?\",\n",
+        source);
+    assertContains("\"SELECT * FROM items WHERE 1 = 1 AND price <= ?\",\n",
+        source);
+    assertContains("\"SELECT * FROM items WHERE 1 = 1 AND name = ? AND "
+        + "price <= ?\"};", source);
+    String method = getMethod(source, "findItems");
+    assertContains("int mask = (name != null ? 1 : 0) | (maxPrice != null ? "
+        + "2 : 0);", method);
+  }
+
+  @Test
+  public void testUnchangedServiceReusesCachedProxy()
+      throws UnableToCompleteException {
+    RebindResult first = generate(createContext(null));
+    assertEquals(RebindMode.USE_ALL_NEW, first.getRebindMode());
+    assertEquals(PACKAGE + ".services.ItemService_SqlProxy",
+        first.getResultTypeName());
+
+    RebindResult second = generate(createContext(first.getClientDataMap()));
+    assertEquals(RebindMode.USE_ALL_CACHED, second.getRebindMode());
+    assertEquals(first.getResultTypeName(), second.getResultTypeName());
+  }
+
+  @Test
+  public void testChangedServiceIsGeneratedAgain()
+      throws UnableToCompleteException {
+    Map<String, Serializable> clientData = new HashMap<String, Serializable>(
+        generate(createContext(null)).getClientDataMap());
+    clientData.put("signature", "an older ItemService");
+    assertEquals(RebindMode.USE_ALL_NEW,
+        generate(createContext(clientData)).getRebindMode());
+  }
+
+  @Test
+  public void testLaterPermutationUsesExistingProxy()
+      throws UnableToCompleteException {
+    StandardGeneratorContext context = createContext(null);
+    RebindResult first = generate(context);
+    assertEquals(RebindMode.USE_ALL_NEW, first.getRebindMode());
+
+    RebindResult second = generate(context);
+    assertEquals(RebindMode.USE_EXISTING, second.getRebindMode());
+    assertEquals(first.getResultTypeName(), second.getResultTypeName());
+  }
+
+  @Test
+  public void testCopyRowsIsOptIn() throws IOException {
+    String source = getTestServices().getSource("ItemService_SqlProxy");
+    assertContains("protected boolean isCopyRows() {\n        return true;",
+        getMethod(source, "getAllItems"));
+    assertFalse(source, getMethod(source, "findItems").contains("isCopyRows"));
+  }
+
+  @Test
+  public void testCompactMethods() throws IOException {
+    String source = getTestServices().getSource("CompactItemService_SqlProxy");
+    assertContains("new MethodDescriptor(\"insertItem\", \"INSERT INTO items "
+        + "(name) VALUES (?)\", MethodDescriptor.ResultKind.VOID, false, null)",
+        source);
+    String method = getMethod(source, "getItems");
+    assertContains("execute(METHOD_1, args, callback);", method);
+    assertFalse(method, method.contains("readTransaction"));
+  }
+
+  @Test
+  public void testRowMapper() throws IOException {
+    String source = getTestServices().getSource("ItemService_SqlProxy");
+    String mapper = PACKAGE.replace('.', '_') + "_services_Item_RowMapper";
+    String item = "obj.@" + PACKAGE + ".services.Item::";
+    assertContains("new StatementCallbackMappedListCallback<" + PACKAGE
+        + ".services.Item>(this, new " + mapper + "())", source);
+    assertContains("private static final class " + mapper, source);
+    assertContains("v = row[\"item_price\"];\n        if (v != null) " + item
+        + "price = +v;", source);
+    assertContains(item + "name = v == null ? null : String(v);", source);
+    assertContains(item + "created = @com.google.code.gwt.database.client."
+        + "service.callback.list.RowMapper::toLong(D)(+v);", source);
+    assertFalse(source, source.contains(item + "ignored"));
+  }
+
+  @Test
+  public void testUnkeyedShardUpdateFails() {
+    Compilation compilation = compile("UnkeyedShard");
+    assertFalse(compilation.succeeded);
+    assertContains("Method clear has no @ShardKey parameter, so it would "
+        + "write into all shards", compilation.log);
+  }
+
+  @Test
+  public void testOrderedShardSelectFails() {
+    Compilation compilation = compile("OrderedShard");
+    assertFalse(compilation.succeeded);
+    assertContains("ignores its ORDER BY and LIMIT across shards",
+        compilation.log);
+  }
+}
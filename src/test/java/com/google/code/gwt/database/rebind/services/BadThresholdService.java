@@ -0,0 +1,18 @@
+package com.google.code.gwt.database.rebind.services;
+
+import java.util.List;
+
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.InListThreshold;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.Select;
+
+@Connection(name = "items", version = "1", description = "Items", maxsize = 10000)
+@InListThreshold(1000)
+public interface BadThresholdService extends DataService {
+
+  @Select("SELECT * FROM items WHERE id IN ({ids})")
+  void getItems(List<Integer> ids, ListCallback<GenericRow> callback);
+}
@@ -0,0 +1,21 @@
+package com.google.code.gwt.database.rebind.services;
+
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.service.Compact;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+
+@Connection(name = "items", version = "1", description = "Items", maxsize = 10000)
+@Compact
+public interface CompactItemService extends DataService {
+
+  @Update("INSERT INTO items (name) VALUES ({name})")
+  void insertItem(String name, VoidCallback callback);
+
+  @Select("SELECT * FROM items WHERE name = {name}")
+  void getItems(String name, ListCallback<GenericRow> callback);
+}
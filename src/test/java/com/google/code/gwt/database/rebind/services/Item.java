@@ -0,0 +1,14 @@
+package com.google.code.gwt.database.rebind.services;
+
+import com.google.code.gwt.database.client.service.Column;
+import com.google.code.gwt.database.client.service.RowType;
+
+@RowType
+public class Item {
+  int id;
+  String name;
+  @Column("item_price")
+  double price;
+  long created;
+  transient int ignored;
+}
@@ -0,0 +1,38 @@
+package com.google.code.gwt.database.rebind.services;
+
+import java.util.List;
+
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.RowIdListCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+
+@Connection(name = "items", version = "1", description = "Items", maxsize = 10000)
+public interface ItemService extends DataService {
+
+  @Update(sql = "INSERT INTO items (name) VALUES ({_})", foreach = "names", bulk = true)
+  void insertItems(List<String> names, RowIdListCallback callback);
+
+  @Update(sql = "INSERT INTO items (name) VALUES ({_})", foreach = "names", bulk = true)
+  void importItems(List<String> names, VoidCallback callback);
+
+  @Select("SELECT * FROM items WHERE id IN ({ids}) AND name = {name}")
+  void getItems(List<Integer> ids, String name, ListCallback<GenericRow> callback);
+
+  @Select("SELECT * FROM items WHERE id IN ({ids}) OR name IN ({names})")
+  void getMatchingItems(int[] ids, List<String> names,
+      ListCallback<GenericRow> callback);
+
+  @Select("SELECT * FROM items WHERE 1 = 1{? AND name = {name}}{? AND price <= {maxPrice}}")
+  void findItems(String name, Double maxPrice, ListCallback<GenericRow> callback);
+
+  @Select("SELECT id, name, price AS item_price, created FROM items")
+  void getItemObjects(ListCallback<Item> callback);
+
+  @Select(value = "SELECT * FROM items", copyRows = true)
+  void getAllItems(ListCallback<GenericRow> callback);
+}
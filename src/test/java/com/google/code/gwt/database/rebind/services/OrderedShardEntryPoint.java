@@ -0,0 +1,11 @@
+package com.google.code.gwt.database.rebind.services;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.core.client.GWT;
+
+public class OrderedShardEntryPoint implements EntryPoint {
+
+  public void onModuleLoad() {
+    GWT.create(OrderedShardService.class);
+  }
+}
@@ -0,0 +1,16 @@
+package com.google.code.gwt.database.rebind.services;
+
+import com.google.code.gwt.database.client.GenericRow;
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.ListCallback;
+import com.google.code.gwt.database.client.service.Select;
+import com.google.code.gwt.database.client.service.Shards;
+
+@Connection(name = "items", version = "1", description = "Items", maxsize = 10000)
+@Shards(2)
+public interface OrderedShardService extends DataService {
+
+  @Select("SELECT * FROM items ORDER BY name LIMIT 10")
+  void getFirstItems(ListCallback<GenericRow> callback);
+}
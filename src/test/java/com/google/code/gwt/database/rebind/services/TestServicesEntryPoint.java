@@ -0,0 +1,12 @@
+package com.google.code.gwt.database.rebind.services;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.core.client.GWT;
+
+public class TestServicesEntryPoint implements EntryPoint {
+
+  public void onModuleLoad() {
+    GWT.create(ItemService.class);
+    GWT.create(CompactItemService.class);
+  }
+}
@@ -0,0 +1,15 @@
+package com.google.code.gwt.database.rebind.services;
+
+import com.google.code.gwt.database.client.service.Connection;
+import com.google.code.gwt.database.client.service.DataService;
+import com.google.code.gwt.database.client.service.Shards;
+import com.google.code.gwt.database.client.service.Update;
+import com.google.code.gwt.database.client.service.VoidCallback;
+
+@Connection(name = "items", version = "1", description = "Items", maxsize = 10000)
+@Shards(2)
+public interface UnkeyedShardService extends DataService {
+
+  @Update("DELETE FROM items")
+  void clear(VoidCallback callback);
+}